@@ -0,0 +1,85 @@
+package com.rehard.securityclient.bench;
+
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.MessageCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of each message format at realistic sizes.  The
+ * buffer is pooled and reused, as Netty does for the live connection, so
+ * the gc profiler reports only what the codec itself allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class CodecBenchmark {
+    /**
+     * modList300: ModList of a 300-mod pack; startVote10Image: ten options
+     * plus a ~55 KB Base64 background; startVote500: many options, no
+     * image; voteStats64 / voteStatsDelta8of64: full vs delta stats update.
+     */
+    @Param({"modList300", "startVote10Image", "startVote500", "voteStats64", "voteStatsDelta8of64"})
+    public String payload;
+
+    /** legacy: string subchannel; opcode: one-byte header; deflate: opcode plus compression. */
+    @Param({"legacy", "opcode", "deflate"})
+    public String framing;
+
+    private boolean opcodes;
+    private boolean compress;
+
+    private Message message;
+    private ByteBuf encoded;
+    private ByteBuf scratch;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        message = switch (payload) {
+            case "modList300" -> Payloads.modList(300);
+            case "startVote10Image" -> Payloads.startVote(10, Payloads.base64(Payloads.backgroundPng(160, 90)));
+            case "startVote500" -> Payloads.startVote(500, null);
+            case "voteStats64" -> Payloads.voteStats(64);
+            case "voteStatsDelta8of64" -> Payloads.voteStatsDelta(64, 8, 101);
+            default -> throw new IllegalArgumentException(payload);
+        };
+        opcodes = !framing.equals("legacy");
+        compress = framing.equals("deflate");
+        encoded = PooledByteBufAllocator.DEFAULT.heapBuffer();
+        MessageCodec.encode(encoded, message, opcodes, compress);
+        scratch = PooledByteBufAllocator.DEFAULT.heapBuffer(encoded.readableBytes());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoded.release();
+        scratch.release();
+    }
+
+    @Benchmark
+    public ByteBuf encode() {
+        scratch.clear();
+        MessageCodec.encode(scratch, message, opcodes, compress);
+        return scratch;
+    }
+
+    @Benchmark
+    public Message decode() {
+        encoded.readerIndex(0);
+        return MessageCodec.decode(encoded);
+    }
+}
@@ -0,0 +1,35 @@
+package com.rehard.securityclient.bench;
+
+import com.rehard.securityclient.hwid.HardwareId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the HWID computation: full (network interface walk) versus the
+ * fallback, and the memoized read that the join path actually pays.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class HwidBenchmark {
+
+    @Benchmark
+    public String compute() {
+        return HardwareId.compute();
+    }
+
+    @Benchmark
+    public String computeFallback() {
+        return HardwareId.computeFallback();
+    }
+
+    @Benchmark
+    public String memoized() {
+        return HardwareId.get(1_000);
+    }
+}
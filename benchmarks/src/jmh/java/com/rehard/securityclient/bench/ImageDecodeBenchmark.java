@@ -0,0 +1,88 @@
+package com.rehard.securityclient.bench;
+
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base64 plus PNG decode of typical vote backgrounds, through the same
+ * STB decoder that {@code NativeImage.read} uses in the client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class ImageDecodeBenchmark {
+    @Param({"854x480", "1920x1080"})
+    public String size;
+
+    private String base64;
+    private byte[] png;
+    private ByteBuffer direct;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String[] wh = size.split("x");
+        png = Payloads.backgroundPng(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]));
+        base64 = Payloads.base64(png);
+        direct = MemoryUtil.memAlloc(png.length);
+        direct.put(png).flip();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MemoryUtil.memFree(direct);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() {
+        return Base64.getDecoder().decode(base64);
+    }
+
+    @Benchmark
+    public int pngDecode() {
+        return decode(direct);
+    }
+
+    /** The full legacy StartVote path: Base64 string to decoded pixels. */
+    @Benchmark
+    public int base64AndPngDecode() {
+        byte[] raw = Base64.getDecoder().decode(base64);
+        ByteBuffer buf = MemoryUtil.memAlloc(raw.length);
+        try {
+            buf.put(raw).flip();
+            return decode(buf);
+        } finally {
+            MemoryUtil.memFree(buf);
+        }
+    }
+
+    private static int decode(ByteBuffer encoded) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+            ByteBuffer pixels = STBImage.stbi_load_from_memory(encoded, w, h, channels, 4);
+            if (pixels == null) throw new IllegalStateException(STBImage.stbi_failure_reason());
+            int result = pixels.get(0);
+            STBImage.stbi_image_free(pixels);
+            return result + w.get(0) * h.get(0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.rehard.securityclient.bench;
+
+import com.rehard.securityclient.protocol.ModList;
+import com.rehard.securityclient.protocol.StartVote;
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+/** Realistic message fixtures shared by the benchmarks; deterministic per seed. */
+final class Payloads {
+    private Payloads() {}
+
+    /** A large modpack: {@code mods} ids in the usual lower_snake style and a few packs. */
+    static ModList modList(int mods) {
+        Random rnd = new Random(42);
+        List<String> ids = new ArrayList<>(mods);
+        for (int i = 0; i < mods; i++) ids.add(word(rnd, 4 + rnd.nextInt(12)) + (i % 3 == 0 ? "_api" : ""));
+        List<String> packs = List.of("Faithful 32x", "Fresh Animations", "file/ssavs-ui.zip", "Programmer Art");
+        return new ModList(ids, packs);
+    }
+
+    static StartVote startVote(int options, String imageBase64) {
+        Random rnd = new Random(7);
+        List<String> opts = new ArrayList<>(options);
+        for (int i = 0; i < options; i++) opts.add("Вариант " + (i + 1) + ": " + word(rnd, 12));
+        return new StartVote("vote-" + rnd.nextInt(1000), "Смена карты", "Выберите карту для следующего раунда",
+                             opts, false, imageBase64, 60);
+    }
+
+    static VoteStats voteStats(int options) {
+        Random rnd = new Random(9);
+        int[] counts = new int[options];
+        for (int i = 0; i < options; i++) counts[i] = rnd.nextInt(5000);
+        return new VoteStats("vote-1", counts, 100);
+    }
+
+    /** A delta touching {@code changed} options spread over {@code options}. */
+    static VoteStatsDelta voteStatsDelta(int options, int changed, int seq) {
+        int[] indices = new int[changed];
+        int[] increments = new int[changed];
+        int step = Math.max(1, options / changed);
+        for (int i = 0; i < changed; i++) {
+            indices[i] = i * step;
+            increments[i] = 1 + (i % 3);
+        }
+        return new VoteStatsDelta("vote-1", seq, indices, increments);
+    }
+
+    /** PNG of a typical 1920x1080 background: gradient with noise, so it does not compress to nothing. */
+    static byte[] backgroundPng(int width, int height) throws IOException {
+        Random rnd = new Random(3);
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width) ^ (rnd.nextInt(16));
+                int g = (y * 255 / height) ^ (rnd.nextInt(16));
+                int b = ((x + y) & 0xFF);
+                img.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    static String base64(byte[] data) {
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    private static String word(Random rnd, int len) {
+        char[] c = new char[len];
+        for (int i = 0; i < len; i++) c[i] = (char) ('a' + rnd.nextInt(26));
+        return new String(c);
+    }
+}
@@ -0,0 +1,74 @@
+package com.rehard.securityclient.bench;
+
+import com.rehard.securityclient.capture.SessionRecording;
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.MessageCodec;
+import com.rehard.securityclient.standin.Profile;
+import com.rehard.securityclient.vote.StatsMailbox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Network-thread cost of a whole recorded session: every incoming frame
+ * decoded, with VoteStats and VoteEnd published to a {@link StatsMailbox}
+ * as {@code RawPluginPayload.decode} does.  One operation is the full
+ * recording, replayed as fast as possible.
+ *
+ * <p>Pass a recording from a player ({@code <gameDir>/ssavs/session.ssr})
+ * with {@code -PjmhRecording=<file>}; by default a short stand-in profile is
+ * recorded first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class ReplayBenchmark {
+    private static final String DEFAULT_PROFILE = "votes=2,options=64,rate=200,duration=2,image=65536";
+
+    @Param("")
+    public String recording;
+
+    private List<SessionRecording.Frame> frames;
+    private StatsMailbox mailbox;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Path file;
+        if (recording.isEmpty()) {
+            file = Files.createTempFile("ssavs-replay", ".ssr");
+            file.toFile().deleteOnExit();
+            StandinLoad.record(Profile.parse(DEFAULT_PROFILE), file);
+        } else {
+            file = Path.of(recording);
+        }
+        frames = SessionRecording.read(file).frames().stream().filter(SessionRecording.Frame::incoming).toList();
+        mailbox = new StatsMailbox();
+    }
+
+    @Benchmark
+    public void replay(Blackhole bh) {
+        for (SessionRecording.Frame f : frames) {
+            Message message = MessageCodec.decode(f.buffer());
+            if (StatsMailbox.coalesces(message)) {
+                mailbox.publish(message, f.nanos());
+            } else {
+                bh.consume(message);
+            }
+        }
+        mailbox.clear();
+    }
+}
@@ -0,0 +1,246 @@
+package com.rehard.securityclient.bench;
+
+import com.rehard.securityclient.capture.SessionRecorder;
+import com.rehard.securityclient.image.BackgroundCache;
+import com.rehard.securityclient.image.ChunkedDownload;
+import com.rehard.securityclient.image.UrlBackgroundFetcher;
+import com.rehard.securityclient.metrics.ClientMetrics;
+import com.rehard.securityclient.protocol.ClientHello;
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.Dispatcher;
+import com.rehard.securityclient.protocol.Hwid;
+import com.rehard.securityclient.protocol.ImageChunk;
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.MessageCodec;
+import com.rehard.securityclient.protocol.MessageType;
+import com.rehard.securityclient.protocol.ModHashes;
+import com.rehard.securityclient.protocol.ModList;
+import com.rehard.securityclient.protocol.Ping;
+import com.rehard.securityclient.protocol.Pong;
+import com.rehard.securityclient.protocol.ProtocolException;
+import com.rehard.securityclient.protocol.RequestHwid;
+import com.rehard.securityclient.protocol.RequestImageChunk;
+import com.rehard.securityclient.protocol.RequestMods;
+import com.rehard.securityclient.protocol.RequestVoteStats;
+import com.rehard.securityclient.protocol.ServerHello;
+import com.rehard.securityclient.protocol.StartVote;
+import com.rehard.securityclient.protocol.VoteBackground;
+import com.rehard.securityclient.protocol.VoteEnd;
+import com.rehard.securityclient.protocol.VoteResponse;
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+import com.rehard.securityclient.standin.Profile;
+import com.rehard.securityclient.standin.StandinImageServer;
+import com.rehard.securityclient.standin.StandinServer;
+import com.rehard.securityclient.vote.StatsMailbox;
+import com.rehard.securityclient.vote.VoteTally;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link StandinServer} profile against a headless client built
+ * from the mod's protocol classes: the same codec, dispatcher, stats
+ * mailbox, tally and chunked download, with Minecraft left out.  Every
+ * vote is answered as soon as it starts.  With {@code url=true} the
+ * backgrounds come from a loopback {@link StandinImageServer} through the
+ * mod's {@link UrlBackgroundFetcher}, into a throwaway disk cache.  Prints the server report and
+ * the client metrics as JSON.  With {@code -Dstandin.record=<file>} the
+ * traffic is also recorded, as the mod does, for {@link ReplayBenchmark}.
+ *
+ * <pre>gradle :benchmarks:standinLoad -PstandinProfile=votes=5,options=500,rate=100,image=262144</pre>
+ */
+public final class StandinLoad {
+    /** Client tick length; the mailbox is drained once per tick. */
+    private static final long TICK_NANOS = 50_000_000L;
+    private static final long PING_NANOS = 1_000_000_000L;
+    private static final int RECORDING_BYTES = 64 * 1024 * 1024;
+
+    private final ClientMetrics metrics = new ClientMetrics();
+    private final StatsMailbox mailbox = new StatsMailbox();
+    private final ArrayDeque<ByteBuf> inbox = new ArrayDeque<>();
+    private final StandinServer server;
+    private final StandinImageServer images;
+    private final UrlBackgroundFetcher fetcher;
+    private final Dispatcher dispatcher;
+    private SessionRecorder recorder;
+    private boolean opcodes;
+    private boolean compress;
+    private boolean ping;
+    private String voteId;
+    private VoteTally tally;
+    private ChunkedDownload download;
+    private long now;
+
+    private StandinLoad(Profile profile) throws IOException {
+        if (profile.urlImages()) {
+            Path dir = Files.createTempDirectory("ssavs-standin-bg");
+            images = new StandinImageServer();
+            fetcher = new UrlBackgroundFetcher(new BackgroundCache(dir, 64L * 1024 * 1024), dir,
+                VoteBackground.MAX_SIZE, Duration.ofSeconds(10));
+            fetcher.setAllowLoopback(true);
+        } else {
+            images = null;
+            fetcher = null;
+        }
+        server = new StandinServer(profile, inbox::add, images);
+        dispatcher = new Dispatcher()
+            .register(MessageType.SERVER_HELLO, ServerHello.class, m -> {
+                opcodes = m.protocolVersion() >= MessageCodec.OPCODE_VERSION;
+                compress = opcodes && (m.capabilities() & MessageCodec.CAP_DEFLATE) != 0;
+                ping = opcodes && (m.capabilities() & MessageCodec.CAP_PING) != 0;
+            })
+            .register(MessageType.PONG, Pong.class, m -> {
+                if (m.answersPing()) metrics.recordPing(now - m.pingNanos(), m.serverNanos());
+            })
+            .register(MessageType.REQUEST_MODS, RequestMods.class, m -> {
+                send(new ModList(List.of("fabricloader", "minecraft", "rehard_security_client"), List.of()));
+                send(new ModHashes(List.of(new ModHashes.Entry("rehard_security_client", ContentHash.of(new byte[0]))), List.of()));
+            })
+            .register(MessageType.REQUEST_HWID, RequestHwid.class, m -> send(new Hwid("headless")))
+            .register(MessageType.START_VOTE, StartVote.class, this::onStartVote)
+            .register(MessageType.VOTE_STATS, VoteStats.class, m -> publish(m))
+            .register(MessageType.VOTE_END, VoteEnd.class, m -> publish(m))
+            .register(MessageType.VOTE_STATS_DELTA, VoteStatsDelta.class, this::onDelta)
+            .register(MessageType.VOTE_BACKGROUND, VoteBackground.class, this::onBackground)
+            .register(MessageType.IMAGE_CHUNK, ImageChunk.class, this::onChunk);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Profile profile = Profile.parse(String.join(",", args));
+        StandinLoad load = new StandinLoad(profile);
+        String record = System.getProperty("standin.record");
+        if (record != null && !record.isBlank()) load.recorder = new SessionRecorder(Path.of(record), RECORDING_BYTES);
+        System.err.println("Stand-in load: " + profile);
+        System.out.println(load.run());
+        System.out.println(load.metrics.toJson());
+        if (load.recorder != null) load.recorder.close();
+        load.close();
+    }
+
+    /** Runs {@code profile} to the end, recording the traffic into {@code file}. */
+    static void record(Profile profile, Path file) throws IOException {
+        StandinLoad load = new StandinLoad(profile);
+        try (SessionRecorder recorder = new SessionRecorder(file, RECORDING_BYTES)) {
+            load.recorder = recorder;
+            load.run();
+        } finally {
+            load.close();
+        }
+    }
+
+    private void close() {
+        if (fetcher != null) fetcher.close();
+        if (images != null) images.close();
+    }
+
+    private String run() {
+        now = System.nanoTime();
+        send(new ClientHello(ClientHello.digest(List.of(), List.of()), "headless",
+            MessageCodec.PROTOCOL_VERSION, MessageCodec.CAPABILITIES));
+        long nextTick = now + TICK_NANOS;
+        long nextPing = now;
+        while (!server.isDone()) {
+            now = System.nanoTime();
+            server.tick(now);
+            ByteBuf buf;
+            while ((buf = inbox.poll()) != null) receive(buf);
+            if (now >= nextTick) {
+                mailbox.drain(p -> apply(p.message()));
+                nextTick += TICK_NANOS;
+            }
+            if (ping && now >= nextPing) {
+                send(new Ping(now));
+                nextPing = now + PING_NANOS;
+            }
+            LockSupport.parkNanos(1_000_000L);
+        }
+        return server.reportJson();
+    }
+
+    private void receive(ByteBuf buf) {
+        long start = System.nanoTime();
+        int size = buf.readableBytes();
+        if (recorder != null) recorder.record(SessionRecorder.IN, buf, buf.readerIndex(), size);
+        try {
+            Message message = MessageCodec.decode(buf);
+            metrics.recordIn(message.type(), size, System.nanoTime() - start);
+            dispatcher.dispatch(message);
+        } catch (ProtocolException e) {
+            metrics.recordDecodeError();
+        }
+    }
+
+    private void send(Message message) {
+        ByteBuf buf = Unpooled.buffer();
+        MessageCodec.encode(buf, message, opcodes, compress);
+        metrics.recordOut(message.type(), buf.readableBytes());
+        if (recorder != null) recorder.record(SessionRecorder.OUT, buf, buf.readerIndex(), buf.readableBytes());
+        server.fromClient(buf, System.nanoTime());
+    }
+
+    private void publish(Message message) {
+        if (mailbox.publish(message, now)) metrics.recordStatsCoalesced();
+    }
+
+    private void apply(Message message) {
+        if (message instanceof VoteStats stats && stats.voteId().equals(voteId)) {
+            if (tally.applySnapshot(stats.seq(), stats.counts()) == VoteTally.Result.APPLIED) metrics.recordStatsApplied();
+        } else if (message instanceof VoteEnd end && end.voteId().equals(voteId)) {
+            voteId = null;
+            download = null;
+        }
+    }
+
+    private void onStartVote(StartVote m) {
+        mailbox.drain(p -> apply(p.message()));
+        voteId = m.voteId();
+        tally = new VoteTally(m.voteId(), m.options().size());
+        if (fetcher != null && UrlBackgroundFetcher.isUrl(m.imageData())) {
+            // the mod fetches in the background; here the wait is part of the run
+            try {
+                fetcher.fetch(m.imageData()).get();
+            } catch (ExecutionException e) {
+                metrics.recordDecodeError();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        send(new VoteResponse(m.voteId(), 0));
+    }
+
+    private void onDelta(VoteStatsDelta m) {
+        StatsMailbox.Pending pending = mailbox.take(m.voteId());
+        if (pending != null) apply(pending.message());
+        if (!m.voteId().equals(voteId)) return;
+        VoteTally.Result result = tally.applyDelta(m);
+        if (result == VoteTally.Result.APPLIED) {
+            metrics.recordStatsApplied();
+        } else if (result == VoteTally.Result.RESYNC) {
+            send(new RequestVoteStats(m.voteId()));
+        }
+    }
+
+    private void onBackground(VoteBackground m) {
+        download = new ChunkedDownload(m.voteId(), m.hash(), m.size());
+        for (RequestImageChunk req : download.start(now)) send(req);
+    }
+
+    private void onChunk(ImageChunk m) {
+        if (download == null || !download.hash().equals(m.hash())) return;
+        RequestImageChunk next = download.accept(m, now);
+        if (next != null) send(next);
+        if (download.isComplete()) {
+            if (!download.hash().matches(download.data())) metrics.recordDecodeError();
+            download = null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.rehard.securityclient.bench;
+
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+import com.rehard.securityclient.vote.VoteTally;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stats application behind {@code VoteScreen.updateStats}: snapshots and
+ * deltas written while the render path copies the counters out, with the
+ * writers and the reader contending on one tally.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class VoteTallyBenchmark {
+    @Param({"8", "64", "1000"})
+    public int options;
+
+    private VoteTally tally;
+    private int[] snapshot;
+    private VoteStatsDelta[] deltas;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        tally = new VoteTally("vote-1", options);
+        snapshot = new int[options];
+        tally.applySnapshot(0, snapshot);
+        // a long run of in-sequence deltas; the writer resynchronises when it wraps
+        deltas = new VoteStatsDelta[1024];
+        for (int i = 0; i < deltas.length; i++) {
+            deltas[i] = Payloads.voteStatsDelta(options, Math.min(8, options), i + 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        int[] view;
+    }
+
+    /** The network side: in-sequence deltas, resynchronising like the client does after a gap. */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public VoteTally.Result applyDelta(Cursor c) {
+        if (c.next == deltas.length) {
+            c.next = 0;
+            tally.applySnapshot(VoteStats.NO_SEQ, snapshot);
+            tally.applySnapshot(0, snapshot);
+        }
+        return tally.applyDelta(deltas[c.next++]);
+    }
+
+    /** Full snapshots at the current sequence, as sent after a RequestVoteStats. */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public VoteTally.Result applySnapshot() {
+        return tally.applySnapshot(tally.seq(), snapshot);
+    }
+
+    /** The render side copying the counters out every frame. */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public int[] render(Cursor c) {
+        if (c.view == null) c.view = new int[options];
+        tally.copyTo(c.view);
+        return c.view;
+    }
+}
@@ -0,0 +1,142 @@
+package com.rehard.securityclient.capture;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends raw {@code ssavs:security} payloads to a memory-mapped ring file
+ * of fixed size.  Once the file is full the oldest frames are overwritten,
+ * so it always holds the most recent traffic and never grows.  Writes go
+ * straight to the mapping; the OS flushes it, even if the game crashes.
+ *
+ * <p>Layout: a {@value #HEADER}-byte header, then frames of
+ * {@code int length, byte direction, long nanos, byte[length] payload}.
+ * A frame that does not fit before the end of the file starts again at
+ * the beginning, with a length of {@value #WRAP} left as a marker if
+ * there is room.  Read back with {@link SessionRecording}.
+ */
+public final class SessionRecorder implements Closeable {
+    /** Direction of a payload from the server. */
+    public static final int IN = 0;
+    /** Direction of a payload to the server. */
+    public static final int OUT = 1;
+
+    /** Smallest accepted file size. */
+    public static final int MIN_SIZE = 4096;
+
+    static final int MAGIC = 0x53535652; // "SSVR"
+    static final int VERSION = 1;
+    static final int HEADER = 64;
+    static final int FRAME_HEADER = 13;
+    static final int WRAP = -1;
+
+    // header fields
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_CAPACITY = 8;
+    static final int H_HEAD = 12;
+    static final int H_TAIL = 16;
+    static final int H_COUNT = 20;
+    static final int H_DROPPED = 24;
+    static final int H_START_MILLIS = 32;
+
+    private final long originNanos = System.nanoTime();
+    private final int capacity;
+    private MappedByteBuffer map;
+    /** Data offset where the next frame goes. */
+    private int head;
+    /** Data offset of the oldest frame; equal to {@link #head} when empty. */
+    private int tail;
+    private int count;
+    private int dropped;
+
+    /**
+     * Creates or truncates {@code file} to {@code size} bytes and maps it.
+     *
+     * @throws IllegalArgumentException if {@code size} is below {@link #MIN_SIZE}
+     */
+    public SessionRecorder(Path file, int size) throws IOException {
+        if (size < MIN_SIZE) throw new IllegalArgumentException("Recording size below " + MIN_SIZE + ": " + size);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            map = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        capacity = size - HEADER;
+        map.putInt(H_MAGIC, MAGIC);
+        map.putInt(H_VERSION, VERSION);
+        map.putInt(H_CAPACITY, capacity);
+        map.putLong(H_START_MILLIS, System.currentTimeMillis());
+        writeHeader();
+    }
+
+    /**
+     * Appends {@code length} bytes of {@code buf} from {@code index}, leaving
+     * its indices untouched.  Payloads larger than the whole ring are
+     * counted as dropped.  Safe to call from the network and client threads.
+     *
+     * @param direction {@link #IN} or {@link #OUT}
+     */
+    public synchronized void record(int direction, ByteBuf buf, int index, int length) {
+        if (map == null) return;
+        long nanos = System.nanoTime() - originNanos;
+        int size = FRAME_HEADER + length;
+        if (size > capacity) {
+            dropped++;
+            map.putInt(H_DROPPED, dropped);
+            return;
+        }
+        if (head + size > capacity) {
+            // drop whatever is left between head and the end, then wrap
+            while (count > 0 && tail >= head) advanceTail();
+            if (capacity - head >= 4) map.putInt(HEADER + head, WRAP);
+            head = 0;
+        }
+        while (count > 0 && tail >= head && tail < head + size) advanceTail();
+        if (count == 0) tail = head;
+        int p = HEADER + head;
+        map.putInt(p, length);
+        map.put(p + 4, (byte) direction);
+        map.putLong(p + 5, nanos);
+        buf.getBytes(index, map.slice(p + FRAME_HEADER, length));
+        head += size;
+        count++;
+        writeHeader();
+    }
+
+    /** Number of frames currently held. */
+    public synchronized int count() {
+        return count;
+    }
+
+    /** Flushes the mapping and stops recording; later calls to {@link #record} are ignored. */
+    @Override
+    public synchronized void close() {
+        if (map == null) return;
+        map.force();
+        map = null;
+    }
+
+    private void advanceTail() {
+        int len = capacity - tail < 4 ? WRAP : map.getInt(HEADER + tail);
+        if (len == WRAP) {
+            tail = 0;
+            return;
+        }
+        tail += FRAME_HEADER + len;
+        if (--count == 0) tail = head;
+    }
+
+    private void writeHeader() {
+        map.putInt(H_HEAD, head);
+        map.putInt(H_TAIL, tail);
+        map.putInt(H_COUNT, count);
+    }
+}
@@ -0,0 +1,143 @@
+package com.rehard.securityclient.capture;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A ring file written by {@link SessionRecorder}, read back oldest frame
+ * first.  {@link #replay} feeds the incoming frames to a consumer, at the
+ * recorded pace or as fast as it takes them.
+ */
+public final class SessionRecording {
+    /**
+     * One recorded payload.
+     *
+     * @param direction {@link SessionRecorder#IN} or {@link SessionRecorder#OUT}
+     * @param nanos     time since the recorder was created
+     * @param data      the payload as it was on the wire
+     */
+    public record Frame(int direction, long nanos, byte[] data) {
+        public boolean incoming() {
+            return direction == SessionRecorder.IN;
+        }
+
+        /** A new buffer over {@link #data}, ready for {@code MessageCodec.decode}. */
+        public ByteBuf buffer() {
+            return Unpooled.wrappedBuffer(data);
+        }
+    }
+
+    private final long startMillis;
+    private final int dropped;
+    private final List<Frame> frames;
+
+    private SessionRecording(long startMillis, int dropped, List<Frame> frames) {
+        this.startMillis = startMillis;
+        this.dropped = dropped;
+        this.frames = frames;
+    }
+
+    /**
+     * Reads a whole recording into memory.
+     *
+     * @throws IOException if the file is not a recording or its frames do
+     *                     not add up, e.g. it was cut short
+     */
+    public static SessionRecording read(Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < SessionRecorder.HEADER) throw new IOException("Not a session recording: " + file);
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (map.getInt(SessionRecorder.H_MAGIC) != SessionRecorder.MAGIC) {
+            throw new IOException("Not a session recording: " + file);
+        }
+        int version = map.getInt(SessionRecorder.H_VERSION);
+        if (version != SessionRecorder.VERSION) throw new IOException("Unsupported recording version " + version);
+        int capacity = map.getInt(SessionRecorder.H_CAPACITY);
+        int pos = map.getInt(SessionRecorder.H_TAIL);
+        int count = map.getInt(SessionRecorder.H_COUNT);
+        if (capacity < 0 || (long) capacity + SessionRecorder.HEADER > map.capacity()
+                || pos < 0 || pos > capacity || count < 0) {
+            throw new IOException("Corrupt recording header: " + file);
+        }
+        List<Frame> frames = new ArrayList<>(count);
+        boolean wrapped = false;
+        while (frames.size() < count) {
+            int length = capacity - pos < 4 ? SessionRecorder.WRAP : map.getInt(SessionRecorder.HEADER + pos);
+            if (length == SessionRecorder.WRAP) {
+                if (wrapped) throw new IOException("Corrupt recording: wrapped twice");
+                wrapped = true;
+                pos = 0;
+                continue;
+            }
+            if (length < 0 || (long) pos + SessionRecorder.FRAME_HEADER + length > capacity) {
+                throw new IOException("Corrupt recording: frame at " + pos);
+            }
+            int p = SessionRecorder.HEADER + pos;
+            byte[] data = new byte[length];
+            map.get(p + SessionRecorder.FRAME_HEADER, data);
+            frames.add(new Frame(map.get(p + 4), map.getLong(p + 5), data));
+            pos += SessionRecorder.FRAME_HEADER + length;
+        }
+        return new SessionRecording(map.getLong(SessionRecorder.H_START_MILLIS),
+            map.getInt(SessionRecorder.H_DROPPED), List.copyOf(frames));
+    }
+
+    /** Wall-clock time the recorder was created, in epoch milliseconds. */
+    public long startMillis() {
+        return startMillis;
+    }
+
+    /** Payloads that were too large for the ring and not recorded. */
+    public int dropped() {
+        return dropped;
+    }
+
+    /** All frames, both directions, oldest first. */
+    public List<Frame> frames() {
+        return frames;
+    }
+
+    /**
+     * Passes the incoming frames to {@code sink} on the calling thread.
+     * Outgoing frames are skipped; the client being replayed into produces
+     * its own.
+     *
+     * @param realTime  keep the recorded gaps between frames; otherwise
+     *                  deliver them back to back
+     * @param cancelled checked before each frame
+     * @return the number of frames delivered
+     */
+    public int replay(Consumer<Frame> sink, boolean realTime, BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        long first = -1;
+        int delivered = 0;
+        for (Frame f : frames) {
+            if (!f.incoming()) continue;
+            if (first < 0) first = f.nanos();
+            if (realTime) {
+                long due = start + (f.nanos() - first);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0 && !cancelled.getAsBoolean()) {
+                    LockSupport.parkNanos(Math.min(wait, 50_000_000L));
+                }
+            }
+            if (cancelled.getAsBoolean()) break;
+            sink.accept(f);
+            delivered++;
+        }
+        return delivered;
+    }
+}
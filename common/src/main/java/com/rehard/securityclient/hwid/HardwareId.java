@@ -0,0 +1,109 @@
+package com.rehard.securityclient.hwid;
+
+import com.rehard.securityclient.protocol.ContentHash;
+
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hardware identifier of this machine: a hex SHA-256 over the first MAC
+ * address found and a few system properties.
+ *
+ * <p>Enumerating network interfaces can take hundreds of milliseconds on
+ * machines with many virtual adapters, so the value is computed once on a
+ * background thread via {@link #precompute()} and memoized; callers on the
+ * client thread only wait a bounded time for it.
+ */
+public final class HardwareId {
+    private static volatile CompletableFuture<String> future;
+
+    private HardwareId() {}
+
+    /** Starts the background computation if it has not been started yet. */
+    public static synchronized CompletableFuture<String> precompute() {
+        if (future == null) {
+            CompletableFuture<String> f = new CompletableFuture<>();
+            Thread t = new Thread(() -> {
+                try {
+                    f.complete(compute());
+                } catch (Throwable e) {
+                    f.completeExceptionally(e);
+                }
+            }, "SSaVS HWID");
+            t.setDaemon(true);
+            t.start();
+            future = f;
+        }
+        return future;
+    }
+
+    /**
+     * Returns the memoized identifier, waiting at most {@code timeoutMs} for
+     * the background computation.  If it is not ready in time or failed,
+     * returns {@link #computeFallback()} instead; later calls still pick up
+     * the full identifier once it is available.
+     */
+    public static String get(long timeoutMs) {
+        CompletableFuture<String> f = precompute();
+        try {
+            return f.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException ignore) {
+            // fall through
+        }
+        return computeFallback();
+    }
+
+    /** Whether {@link #get} would return without falling back. */
+    public static boolean isReady() {
+        CompletableFuture<String> f = future;
+        return f != null && f.isDone() && !f.isCompletedExceptionally();
+    }
+
+    /**
+     * Builds the identifier synchronously.  Walks all network interfaces
+     * until one with a MAC address is found.
+     */
+    public static String compute() {
+        MessageDigest sha = ContentHash.sha256();
+
+        try {
+            var en = NetworkInterface.getNetworkInterfaces();
+            if (en != null) {
+                while (en.hasMoreElements()) {
+                    byte[] mac = en.nextElement().getHardwareAddress();
+                    if (mac != null) {
+                        sha.update(mac);
+                        break;
+                    }
+                }
+            }
+        } catch (Throwable ignore) {
+            // Ignore network interface issues
+        }
+
+        return finish(sha);
+    }
+
+    /**
+     * The identifier without the MAC address component; cheap, but only
+     * used when the full one is not available in time.
+     */
+    public static String computeFallback() {
+        return finish(ContentHash.sha256());
+    }
+
+    private static String finish(MessageDigest sha) {
+        sha.update(System.getProperty("os.name", "").getBytes(StandardCharsets.UTF_8));
+        sha.update(System.getProperty("os.version", "").getBytes(StandardCharsets.UTF_8));
+        sha.update(System.getProperty("user.name", "").getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(sha.digest());
+    }
+}
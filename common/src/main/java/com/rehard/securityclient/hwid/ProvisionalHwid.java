@@ -0,0 +1,59 @@
+package com.rehard.securityclient.hwid;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The HWID as sent over one connection.  While {@link HardwareId} is still
+ * computing, the fallback goes out provisionally and the full identifier
+ * is handed to a follow-up exactly once, however many messages carried
+ * the fallback in the meantime.  {@link #reset()} on disconnect arms the
+ * follow-up again for the next connection.
+ */
+public final class ProvisionalHwid {
+    private final CompletableFuture<String> full;
+    private final Supplier<String> fallback;
+    private final AtomicBoolean followUpChained = new AtomicBoolean();
+
+    public ProvisionalHwid() {
+        this(HardwareId.precompute(), HardwareId::computeFallback);
+    }
+
+    ProvisionalHwid(CompletableFuture<String> full, Supplier<String> fallback) {
+        this.full = full;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns the full identifier if it is ready within {@code timeoutMs},
+     * otherwise the fallback.  On the first fallback since {@link #reset()}
+     * the full identifier is passed to {@code followUp} once computed, on
+     * the computing thread; if the computation fails, the fallback stands.
+     */
+    public String get(long timeoutMs, Consumer<String> followUp) {
+        try {
+            return full.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException | ExecutionException ignore) {
+            // fall through
+        }
+        if (!full.isDone() && followUpChained.compareAndSet(false, true)) full.thenAccept(followUp);
+        return fallback.get();
+    }
+
+    /** Whether {@link #get} would return the full identifier. */
+    public boolean isReady() {
+        return full.isDone() && !full.isCompletedExceptionally();
+    }
+
+    /** Forgets the follow-up of the previous connection. */
+    public void reset() {
+        followUpChained.set(false);
+    }
+}
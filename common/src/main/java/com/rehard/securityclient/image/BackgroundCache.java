@@ -0,0 +1,180 @@
+package com.rehard.securityclient.image;
+
+import com.rehard.securityclient.protocol.ContentHash;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed on-disk cache of vote backgrounds.  Files are named by
+ * the hex SHA-256 of their content and evicted least-recently-used once
+ * the directory exceeds its size budget.  Recency survives restarts via
+ * the files' modification time, which is bumped on every hit.
+ *
+ * <p>Safe for concurrent use.  The index is guarded by a private lock that
+ * is held only for map updates; hashing and file I/O happen outside it, so
+ * {@link #contains} never waits for a read or write of another thread.  An
+ * entry is indexed only once its file has been moved into place.
+ */
+public final class BackgroundCache {
+    private static final String SUFFIX = ".img";
+
+    private final Path dir;
+    private final long maxBytes;
+    private final Object lock = new Object();
+    /** Access-ordered index: eldest entry is the next eviction candidate.  Guarded by lock. */
+    private final LinkedHashMap<ContentHash, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public BackgroundCache(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        load();
+    }
+
+    /**
+     * @return the cached bytes, or {@code null} on a miss or if the file no
+     *         longer matches its hash (it is then dropped)
+     */
+    public byte[] get(ContentHash hash) {
+        synchronized (lock) {
+            // a lookup counts as a use for the LRU order
+            if (index.get(hash) == null) return null;
+        }
+        Path file = file(hash);
+        try {
+            byte[] data = Files.readAllBytes(file);
+            if (!hash.matches(data)) {
+                remove(hash);
+                return null;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return data;
+        } catch (IOException e) {
+            remove(hash);
+            return null;
+        }
+    }
+
+    public boolean contains(ContentHash hash) {
+        synchronized (lock) {
+            return index.containsKey(hash);
+        }
+    }
+
+    /**
+     * Stores {@code data} under {@code hash}.  Data that does not match the
+     * hash, or that alone exceeds the budget, is rejected.
+     *
+     * @return whether the entry was stored
+     */
+    public boolean put(ContentHash hash, byte[] data) throws IOException {
+        if (data.length > maxBytes || !hash.matches(data)) return false;
+        if (contains(hash)) return true;
+        // two threads storing the same image both write it; the content is the same
+        Path tmp = Files.createTempFile(dir, hash.hex(), ".tmp");
+        try {
+            Files.write(tmp, data);
+            try {
+                Files.move(tmp, file(hash), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file(hash), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        List<ContentHash> evicted;
+        synchronized (lock) {
+            if (index.putIfAbsent(hash, (long) data.length) == null) totalBytes += data.length;
+            evicted = evict();
+        }
+        delete(evicted);
+        return true;
+    }
+
+    public long totalBytes() {
+        synchronized (lock) {
+            return totalBytes;
+        }
+    }
+
+    private void load() throws IOException {
+        List<Map.Entry<Path, FileTime>> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(p);
+                } else if (name.endsWith(SUFFIX)) {
+                    files.add(Map.entry(p, Files.getLastModifiedTime(p)));
+                }
+            }
+        }
+        files.sort(Map.Entry.comparingByValue());
+        Map<ContentHash, Long> found = new LinkedHashMap<>();
+        for (Map.Entry<Path, FileTime> e : files) {
+            String name = e.getKey().getFileName().toString();
+            try {
+                found.put(ContentHash.fromHex(name.substring(0, name.length() - SUFFIX.length())), Files.size(e.getKey()));
+            } catch (IllegalArgumentException ex) {
+                Files.deleteIfExists(e.getKey());
+            }
+        }
+        List<ContentHash> evicted;
+        synchronized (lock) {
+            for (Map.Entry<ContentHash, Long> e : found.entrySet()) {
+                index.put(e.getKey(), e.getValue());
+                totalBytes += e.getValue();
+            }
+            evicted = evict();
+        }
+        delete(evicted);
+    }
+
+    /** Drops the eldest entries over budget from the index; the caller deletes their files. */
+    private List<ContentHash> evict() {
+        List<ContentHash> evicted = new ArrayList<>();
+        Iterator<Map.Entry<ContentHash, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<ContentHash, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    private void remove(ContentHash hash) {
+        synchronized (lock) {
+            Long size = index.remove(hash);
+            if (size == null) return;
+            totalBytes -= size;
+        }
+        delete(List.of(hash));
+    }
+
+    private void delete(List<ContentHash> hashes) {
+        for (ContentHash hash : hashes) {
+            try {
+                Files.deleteIfExists(file(hash));
+            } catch (IOException ignore) {
+                // a leftover file is re-indexed and evicted on the next start
+            }
+        }
+    }
+
+    private Path file(ContentHash hash) {
+        return dir.resolve(hash.hex() + SUFFIX);
+    }
+}
@@ -0,0 +1,119 @@
+package com.rehard.securityclient.image;
+
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.ImageChunk;
+import com.rehard.securityclient.protocol.RequestImageChunk;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Receiving side of a chunked background transfer.  At most
+ * {@link #WINDOW} chunk requests are outstanding at a time; each chunk
+ * that arrives frees one credit, which is spent on the next range.
+ * Duplicate or unsolicited chunks are ignored.
+ *
+ * <p>A chunk not answered within {@link #TIMEOUT_NANOS} is requested
+ * again by {@link #expired}; after {@link #MAX_ATTEMPTS} requests of the
+ * same chunk the download {@linkplain #isFailed() has failed}.  The caller
+ * passes {@link System#nanoTime()}.
+ */
+public final class ChunkedDownload {
+    public static final int CHUNK_SIZE = ImageChunk.MAX_LENGTH;
+    public static final int WINDOW = 4;
+    public static final long TIMEOUT_NANOS = 5_000_000_000L;
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final String voteId;
+    private final ContentHash hash;
+    private final byte[] data;
+    private final int chunkCount;
+    private final BitSet received;
+    /** When each requested chunk was last asked for. */
+    private final long[] requestedAt;
+    private final byte[] attempts;
+    private int nextToRequest;
+    private boolean failed;
+
+    public ChunkedDownload(String voteId, ContentHash hash, int size) {
+        this.voteId = voteId;
+        this.hash = hash;
+        this.data = new byte[size];
+        this.chunkCount = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.received = new BitSet(chunkCount);
+        this.requestedAt = new long[chunkCount];
+        this.attempts = new byte[chunkCount];
+    }
+
+    /** The requests that fill the initial window. */
+    public List<RequestImageChunk> start(long nowNanos) {
+        List<RequestImageChunk> requests = new ArrayList<>(WINDOW);
+        while (nextToRequest < chunkCount && requests.size() < WINDOW) requests.add(request(nextToRequest++, nowNanos));
+        return requests;
+    }
+
+    /**
+     * Stores a chunk and returns the follow-up request it pays for, or
+     * {@code null} if there is nothing more to request.
+     */
+    public RequestImageChunk accept(ImageChunk chunk, long nowNanos) {
+        if (failed) return null;
+        int offset = chunk.offset();
+        if (offset % CHUNK_SIZE != 0) return null;
+        int index = offset / CHUNK_SIZE;
+        if (index >= nextToRequest || received.get(index)) return null;
+        if (chunk.data().length != Math.min(CHUNK_SIZE, data.length - offset)) return null;
+        System.arraycopy(chunk.data(), 0, data, offset, chunk.data().length);
+        received.set(index);
+        return nextToRequest < chunkCount ? request(nextToRequest++, nowNanos) : null;
+    }
+
+    /**
+     * The requests for chunks that were not answered in time, each sent
+     * again.  Empty once the download is complete or has failed.
+     */
+    public List<RequestImageChunk> expired(long nowNanos) {
+        if (failed) return List.of();
+        List<RequestImageChunk> requests = null;
+        for (int i = received.nextClearBit(0); i < nextToRequest; i = received.nextClearBit(i + 1)) {
+            if (nowNanos - requestedAt[i] < TIMEOUT_NANOS) continue;
+            if (attempts[i] >= MAX_ATTEMPTS) {
+                failed = true;
+                return List.of();
+            }
+            if (requests == null) requests = new ArrayList<>();
+            requests.add(request(i, nowNanos));
+        }
+        return requests == null ? List.of() : requests;
+    }
+
+    /** Whether a chunk went unanswered {@link #MAX_ATTEMPTS} times. */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public boolean isComplete() {
+        return received.cardinality() == chunkCount;
+    }
+
+    /** The downloaded bytes; only meaningful once {@link #isComplete()}. */
+    public byte[] data() {
+        return data;
+    }
+
+    public String voteId() {
+        return voteId;
+    }
+
+    public ContentHash hash() {
+        return hash;
+    }
+
+    private RequestImageChunk request(int index, long nowNanos) {
+        requestedAt[index] = nowNanos;
+        attempts[index]++;
+        int offset = index * CHUNK_SIZE;
+        return new RequestImageChunk(hash, offset, Math.min(CHUNK_SIZE, data.length - offset));
+    }
+}
@@ -0,0 +1,365 @@
+package com.rehard.securityclient.image;
+
+import com.rehard.securityclient.protocol.ContentHash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Downloads vote backgrounds given as a public URL into a
+ * {@link BackgroundCache}.
+ *
+ * <p>Requests run on virtual threads.  The timeout bounds the whole
+ * exchange including the body and any redirects, and bodies larger than
+ * the size cap are abandoned as soon as the cap is crossed.  Only hosts
+ * that resolve to public addresses are contacted, at every redirect hop;
+ * loopback is allowed only while {@linkplain #setAllowLoopback a local
+ * stand-in} serves the images.  For every URL the
+ * hash of the last body and its {@code ETag} / {@code Last-Modified} are
+ * kept in a small index file next to the cache, so a URL seen before is
+ * revalidated with a conditional request and a {@code 304} is served from
+ * the disk cache.  Concurrent fetches of the same URL share one request.
+ */
+public final class UrlBackgroundFetcher implements AutoCloseable {
+    /** URLs remembered in the index; the least recently used are dropped. */
+    private static final int INDEX_CAPACITY = 256;
+    private static final String INDEX_FILE = "urls.properties";
+    private static final int MAX_REDIRECTS = 5;
+
+    /** A downloaded or revalidated background. */
+    public record Fetched(ContentHash hash, byte[] data, boolean revalidated) {}
+
+    private record Validator(ContentHash hash, String etag, String lastModified) {}
+
+    private final BackgroundCache cache;
+    private final Path indexFile;
+    private final int maxBytes;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient http;
+    /** Access-ordered, so the eldest entry is dropped first.  Guarded by this. */
+    private final LinkedHashMap<String, Validator> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Fetched>> pending = new HashMap<>();
+    private volatile boolean allowLoopback;
+
+    /**
+     * @param cache    content-addressed store for the bodies
+     * @param dir      directory for the validator index, usually the cache's
+     * @param maxBytes largest body accepted
+     * @param timeout  applies to connecting and, separately, to the whole
+     *                 exchange from the first request to the last body byte
+     */
+    public UrlBackgroundFetcher(BackgroundCache cache, Path dir, int maxBytes, Duration timeout) {
+        this.cache = cache;
+        this.indexFile = dir.resolve(INDEX_FILE);
+        this.maxBytes = maxBytes;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+            .executor(executor)
+            .connectTimeout(timeout)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+        loadIndex();
+    }
+
+    /**
+     * Lets URLs on loopback through, for a stand-in image server on this
+     * machine.  Private, link-local and other non-public addresses stay
+     * rejected.
+     */
+    public void setAllowLoopback(boolean allow) {
+        allowLoopback = allow;
+    }
+
+    /** @return whether {@code imageData} is a URL rather than Base64 */
+    public static boolean isUrl(String imageData) {
+        if (imageData == null) return false;
+        String s = imageData.strip().toLowerCase(Locale.ROOT);
+        return s.startsWith("http://") || s.startsWith("https://");
+    }
+
+    /**
+     * Fetches {@code url}, revalidating a cached copy if there is one.  The
+     * future completes on a virtual thread, exceptionally on a bad URL, an
+     * HTTP error, a timeout or an oversized body.
+     */
+    public CompletableFuture<Fetched> fetch(String url) {
+        String key = url.strip();
+        synchronized (this) {
+            CompletableFuture<Fetched> running = pending.get(key);
+            if (running != null) return running;
+            CompletableFuture<Fetched> result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return load(key);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted", e);
+                }
+            }, executor);
+            pending.put(key, result);
+            result.whenComplete((f, err) -> {
+                synchronized (this) {
+                    pending.remove(key);
+                }
+            });
+            return result;
+        }
+    }
+
+    private Fetched load(String url) throws IOException, InterruptedException {
+        Validator known;
+        synchronized (this) {
+            known = index.get(url);
+        }
+        if (known != null && !cache.contains(known.hash)) known = null;
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        URI uri = URI.create(url);
+        for (int hops = 0; ; hops++) {
+            checkAddress(uri);
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(timeout).GET();
+            if (known != null) {
+                if (known.etag != null) request.header("If-None-Match", known.etag);
+                if (known.lastModified != null) request.header("If-Modified-Since", known.lastModified);
+            }
+            HttpResponse<byte[]> response = send(request.build(), deadline);
+            int status = response.statusCode();
+            if (isRedirect(status)) {
+                if (hops == MAX_REDIRECTS) throw new IOException("Too many redirects for " + url);
+                String location = response.headers().firstValue("Location")
+                    .orElseThrow(() -> new IOException("HTTP " + status + " without Location for " + url));
+                uri = uri.resolve(location);
+                continue;
+            }
+            if (status == 304 && known != null) {
+                byte[] data = cache.get(known.hash);
+                if (data != null) return new Fetched(known.hash, data, true);
+                // evicted between contains() and get(); ask again without validators
+                forget(url);
+                return load(url);
+            }
+            if (status != 200) throw new IOException("HTTP " + status + " for " + url);
+            byte[] data = response.body();
+            ContentHash hash = ContentHash.of(data);
+            cache.put(hash, data);
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            if (etag != null || lastModified != null) {
+                remember(url, new Validator(hash, etag, lastModified));
+            } else {
+                forget(url);
+            }
+            return new Fetched(hash, data, false);
+        }
+    }
+
+    /** Sends {@code request} and reads the body, giving up at {@code deadline}. */
+    private HttpResponse<byte[]> send(HttpRequest request, long deadline) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<byte[]>> response = http.sendAsync(request, info -> info.statusCode() == 200
+            ? new CappedBody(info.headers().firstValueAsLong("Content-Length").orElse(-1))
+            : HttpResponse.BodySubscribers.replacing(null));
+        try {
+            return response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // cancelling aborts the exchange, a body still trickling in included
+            response.cancel(true);
+            throw new HttpTimeoutException("Background not received within " + timeout.toMillis() + " ms: " + request.uri());
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    /**
+     * Rejects URLs whose host resolves to an address that is not public.
+     * The client resolves the name again when connecting, so this keeps
+     * out configuration mistakes and plain internal URLs, not a resolver
+     * that answers differently the second time.
+     */
+    private void checkAddress(URI uri) throws IOException {
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IOException("Unsupported background URL: " + uri);
+        }
+        if (uri.getHost() == null) throw new IOException("No host in background URL: " + uri);
+        for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+            boolean allowed = address.isLoopbackAddress() ? allowLoopback : isPublic(address);
+            if (!allowed) throw new IOException("Background host " + uri.getHost() + " is not public: " + address.getHostAddress());
+        }
+    }
+
+    /** Whether {@code address} is routable on the public internet. */
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+            || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] b = address.getAddress();
+        if (b.length == 4) {
+            int b0 = b[0] & 0xFF, b1 = b[1] & 0xFF;
+            // 0/8, carrier-grade NAT 100.64/10, benchmarking 198.18/15, reserved 240/4
+            return b0 != 0 && !(b0 == 100 && (b1 & 0xC0) == 64) && !(b0 == 198 && (b1 & 0xFE) == 18) && b0 < 240;
+        }
+        // unique local fc00::/7
+        return (b[0] & 0xFE) != 0xFC;
+    }
+
+    /** Collects a 200 body, failing as soon as it exceeds the size cap. */
+    private final class CappedBody implements HttpResponse.BodySubscriber<byte[]> {
+        private final long declared;
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private ByteArrayOutputStream out;
+        private Flow.Subscription subscription;
+
+        CappedBody(long declared) {
+            this.declared = declared;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            if (declared > maxBytes) {
+                s.cancel();
+                result.completeExceptionally(new IOException("Background too large: " + declared + " bytes"));
+                return;
+            }
+            out = new ByteArrayOutputStream((int) Math.min(maxBytes, declared >= 0 ? declared : 64 * 1024));
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (result.isDone()) return;
+            for (ByteBuffer buf : buffers) {
+                if (out.size() + buf.remaining() > maxBytes) {
+                    subscription.cancel();
+                    result.completeExceptionally(new IOException("Background larger than " + maxBytes + " bytes"));
+                    return;
+                }
+                byte[] chunk = new byte[buf.remaining()];
+                buf.get(chunk);
+                out.write(chunk, 0, chunk.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            result.completeExceptionally(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!result.isDone()) result.complete(out.toByteArray());
+        }
+    }
+
+    private synchronized void remember(String url, Validator validator) {
+        index.put(url, validator);
+        Iterator<String> it = index.keySet().iterator();
+        while (index.size() > INDEX_CAPACITY && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        saveIndex();
+    }
+
+    private synchronized void forget(String url) {
+        if (index.remove(url) != null) saveIndex();
+    }
+
+    /** Entries are {@code url = hash \n etag \n lastModified}, blank for a missing validator. */
+    private void loadIndex() {
+        if (!Files.exists(indexFile)) return;
+        Properties p = new Properties();
+        try (Reader r = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            p.load(r);
+        } catch (IOException e) {
+            return;
+        }
+        for (String url : p.stringPropertyNames()) {
+            String[] parts = p.getProperty(url).split("\n", -1);
+            if (parts.length != 3) continue;
+            try {
+                index.put(url, new Validator(ContentHash.fromHex(parts[0]),
+                    parts[1].isEmpty() ? null : parts[1], parts[2].isEmpty() ? null : parts[2]));
+            } catch (IllegalArgumentException ignore) {
+                // a damaged entry is simply fetched again
+            }
+        }
+    }
+
+    private void saveIndex() {
+        Properties p = new Properties();
+        for (Map.Entry<String, Validator> e : index.entrySet()) {
+            Validator v = e.getValue();
+            p.setProperty(e.getKey(), v.hash.hex() + "\n" + (v.etag == null ? "" : v.etag)
+                + "\n" + (v.lastModified == null ? "" : v.lastModified));
+        }
+        try {
+            Path tmp = Files.createTempFile(indexFile.getParent(), INDEX_FILE, ".tmp");
+            try {
+                try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    p.store(w, null);
+                }
+                try {
+                    Files.move(tmp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException ignore) {
+            // without the index the next fetch is unconditional
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
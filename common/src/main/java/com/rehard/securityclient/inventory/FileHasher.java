@@ -0,0 +1,237 @@
+package com.rehard.securityclient.inventory;
+
+import com.rehard.securityclient.protocol.ContentHash;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * SHA-256 of mod jars and resource packs, hashed in parallel through
+ * memory-mapped reads and remembered across restarts.
+ *
+ * <p>Results are cached by absolute path, size and modification time in a
+ * small text file, so once warm a lookup costs a single stat per file.
+ * Directories (mods and packs loaded unpacked, mostly in development) are
+ * hashed over their sorted relative paths and contents and never cached,
+ * as their own mtime does not reflect changes deeper down.
+ *
+ * <p>A file requested again while it is being hashed, say by the warm-up
+ * at startup and the handshake at once, shares the running computation.
+ * Files up to {@link #MAP_THRESHOLD} are read through a reused direct
+ * buffer rather than mapped, as a mapping keeps the file locked on Windows
+ * until it is garbage-collected, which blocks replacing a mod or pack.
+ */
+public final class FileHasher {
+    /** Largest region mapped at once; files above it are hashed in windows. */
+    private static final long MAP_WINDOW = 1L << 30;
+    /** Files above this size are mapped; smaller ones are read. */
+    private static final long MAP_THRESHOLD = 64L << 20;
+    private static final int READ_BUFFER = 1 << 20;
+    /** One read buffer per hashing thread. */
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER));
+    private static final String HEADER = "# SSaVS file hashes: sha256 size mtime path";
+
+    private record Entry(long size, long mtime, ContentHash hash) {}
+
+    private record Version(Path path, long size, long mtime) {}
+
+    private final Path cacheFile;
+    private final Executor executor;
+    private final Map<Path, Entry> cache = new ConcurrentHashMap<>();
+    /** Hashes being computed, by file version. */
+    private final Map<Version, CompletableFuture<ContentHash>> running = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * @param cacheFile where results persist; read now, written by {@link #save()}
+     * @param executor  runs the hashing, one task per file
+     */
+    public FileHasher(Path cacheFile, Executor executor) {
+        this.cacheFile = cacheFile;
+        this.executor = executor;
+        load();
+    }
+
+    /**
+     * Hashes {@code paths} in parallel on the executor and saves the cache
+     * if anything new was hashed.  Paths that are missing or unreadable are
+     * left out of the result, which keeps the input order otherwise.
+     */
+    public CompletableFuture<Map<Path, ContentHash>> hashAll(Collection<Path> paths) {
+        List<Path> list = List.copyOf(paths);
+        List<CompletableFuture<ContentHash>> futures = new ArrayList<>(list.size());
+        for (Path p : list) {
+            futures.add(CompletableFuture.supplyAsync(() -> start(p), executor)
+                .thenCompose(f -> f)
+                .exceptionally(e -> null));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApplyAsync(v -> {
+            Map<Path, ContentHash> result = new LinkedHashMap<>();
+            for (int i = 0; i < list.size(); i++) {
+                ContentHash h = futures.get(i).join();
+                if (h != null) result.put(list.get(i), h);
+            }
+            try {
+                save();
+            } catch (IOException ignore) {
+                // only costs a rehash on the next start
+            }
+            return result;
+        }, executor);
+    }
+
+    /** Returns the hash of a file or directory, from the cache when its size and mtime are unchanged. */
+    public ContentHash hash(Path path) throws IOException {
+        try {
+            return start(path).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    /**
+     * Hashes {@code path} on the calling thread, or returns the computation
+     * already running for the same file version.
+     */
+    private CompletableFuture<ContentHash> start(Path path) {
+        try {
+            Path key = path.toAbsolutePath().normalize();
+            BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+            if (attrs.isDirectory()) return CompletableFuture.completedFuture(hashDirectory(key));
+            long mtime = attrs.lastModifiedTime().toMillis();
+            Entry cached = cache.get(key);
+            if (cached != null && cached.size() == attrs.size() && cached.mtime() == mtime) {
+                return CompletableFuture.completedFuture(cached.hash());
+            }
+            Version version = new Version(key, attrs.size(), mtime);
+            CompletableFuture<ContentHash> mine = new CompletableFuture<>();
+            CompletableFuture<ContentHash> other = running.putIfAbsent(version, mine);
+            if (other != null) return other;
+            try {
+                ContentHash hash = hashFile(key);
+                cache.put(key, new Entry(attrs.size(), mtime, hash));
+                dirty = true;
+                mine.complete(hash);
+            } catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+            } finally {
+                running.remove(version, mine);
+            }
+            return mine;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Writes the cache if it changed, dropping entries whose files are gone. */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        dirty = false;
+        cache.keySet().removeIf(p -> !Files.isRegularFile(p));
+        Files.createDirectories(cacheFile.getParent());
+        Path tmp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                w.write(HEADER);
+                w.newLine();
+                for (Map.Entry<Path, Entry> e : cache.entrySet()) {
+                    Entry v = e.getValue();
+                    w.write(v.hash().hex() + '\t' + v.size() + '\t' + v.mtime() + '\t' + e.getKey());
+                    w.newLine();
+                }
+            }
+            try {
+                Files.move(tmp, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Hashes a regular file, reading it or, above {@link #MAP_THRESHOLD}, through mapped windows. */
+    public static ContentHash hashFile(Path file) throws IOException {
+        MessageDigest md = ContentHash.sha256();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size <= MAP_THRESHOLD) {
+                ByteBuffer buf = BUFFER.get();
+                buf.clear();
+                while (ch.read(buf) >= 0) {
+                    buf.flip();
+                    md.update(buf);
+                    buf.clear();
+                }
+            } else {
+                for (long pos = 0; pos < size; pos += MAP_WINDOW) {
+                    MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_WINDOW, size - pos));
+                    md.update(buf);
+                }
+            }
+        }
+        return ContentHash.ofDigest(md.digest());
+    }
+
+    /**
+     * Hashes a directory as the sequence of its regular files in path
+     * order, each contributing its relative path, a zero byte and its hash.
+     */
+    public static ContentHash hashDirectory(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        MessageDigest md = ContentHash.sha256();
+        for (Path f : files) {
+            md.update(dir.relativize(f).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(hashFile(f).toBytes());
+        }
+        return ContentHash.ofDigest(md.digest());
+    }
+
+    private void load() {
+        try (BufferedReader r = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty() || line.charAt(0) == '#') continue;
+                String[] f = line.split("\t", 4);
+                if (f.length != 4) continue;
+                try {
+                    cache.put(Path.of(f[3]), new Entry(Long.parseLong(f[1]), Long.parseLong(f[2]), ContentHash.fromHex(f[0])));
+                } catch (IllegalArgumentException ignore) {
+                    // a damaged line is just a miss
+                }
+            }
+        } catch (NoSuchFileException ignore) {
+            // first start
+        } catch (IOException ignore) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.rehard.securityclient.metrics;
+
+import com.rehard.securityclient.protocol.MessageType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms for the plugin channel and the vote UI.
+ * All recording methods are allocation-free and thread-safe, so the
+ * metrics stay enabled on live clients; formatting only happens when the
+ * overlay or a dump asks for it.
+ *
+ * <p>Effect latency is the time from a packet arriving to its effect being
+ * on screen: {@link #markPending} remembers the arrival of the oldest
+ * unseen packet of a type, and {@link #markVisible} records the delay
+ * when the UI draws the result.
+ *
+ * <p>Round trips of the {@code Ping}/{@code Pong} probe are split into the
+ * whole round trip and the part the server spent before answering, so a
+ * slow network can be told apart from a stalled server.
+ */
+public final class ClientMetrics {
+    private static final MessageType[] TYPES = MessageType.values();
+
+    public static final ClientMetrics INSTANCE = new ClientMetrics();
+
+    private final AtomicLongArray messagesIn = new AtomicLongArray(TYPES.length);
+    private final AtomicLongArray messagesOut = new AtomicLongArray(TYPES.length);
+    private final AtomicLongArray bytesIn = new AtomicLongArray(TYPES.length);
+    private final AtomicLongArray bytesOut = new AtomicLongArray(TYPES.length);
+    private final AtomicLongArray pendingSince = new AtomicLongArray(TYPES.length);
+    private final Histogram[] decodeNanos = new Histogram[TYPES.length];
+    private final Histogram[] effectNanos = new Histogram[TYPES.length];
+
+    private final AtomicLong decodeErrors = new AtomicLong();
+    private final Histogram imageDecodeNanos = new Histogram();
+    private final Histogram pingRttNanos = new Histogram();
+    private final Histogram pingServerNanos = new Histogram();
+    private final AtomicLong statsApplied = new AtomicLong();
+    private final AtomicLong statsCoalesced = new AtomicLong();
+    private final AtomicLong framesRendered = new AtomicLong();
+    private final long startedMillis = System.currentTimeMillis();
+
+    public ClientMetrics() {
+        for (int i = 0; i < TYPES.length; i++) {
+            decodeNanos[i] = new Histogram();
+            effectNanos[i] = new Histogram();
+        }
+    }
+
+    public void recordIn(MessageType type, int bytes, long decodeTimeNanos) {
+        int i = type.ordinal();
+        messagesIn.incrementAndGet(i);
+        bytesIn.addAndGet(i, bytes);
+        decodeNanos[i].record(decodeTimeNanos);
+    }
+
+    public void recordOut(MessageType type, int bytes) {
+        int i = type.ordinal();
+        messagesOut.incrementAndGet(i);
+        bytesOut.addAndGet(i, bytes);
+    }
+
+    public void recordDecodeError() {
+        decodeErrors.incrementAndGet();
+    }
+
+    /** Notes that a packet arrived at {@code receivedNanos} whose effect is not visible yet. */
+    public void markPending(MessageType type, long receivedNanos) {
+        // keep the oldest arrival; 0 means nothing pending
+        pendingSince.compareAndSet(type.ordinal(), 0, receivedNanos == 0 ? 1 : receivedNanos);
+    }
+
+    /** Records the effect latency of the oldest pending packet of {@code type}, if any. */
+    public void markVisible(MessageType type) {
+        long since = pendingSince.getAndSet(type.ordinal(), 0);
+        if (since != 0) effectNanos[type.ordinal()].record(System.nanoTime() - since);
+    }
+
+    /**
+     * Records the effect latency of one packet whose arrival the caller
+     * tracked itself, for effects that belong to a particular vote rather
+     * than to whatever packet of the type came first.
+     */
+    public void recordEffect(MessageType type, long receivedNanos) {
+        effectNanos[type.ordinal()].record(System.nanoTime() - receivedNanos);
+    }
+
+    public void recordImageDecode(long nanos) {
+        imageDecodeNanos.record(nanos);
+    }
+
+    /**
+     * @param rttNanos    time from sending a Ping to receiving its Pong
+     * @param serverNanos time the server reported holding the Ping
+     */
+    public void recordPing(long rttNanos, long serverNanos) {
+        pingRttNanos.record(rttNanos);
+        pingServerNanos.record(serverNanos);
+    }
+
+    public void recordStatsApplied() {
+        statsApplied.incrementAndGet();
+    }
+
+    /** A snapshot was superseded by a newer one before it could be applied. */
+    public void recordStatsCoalesced() {
+        statsCoalesced.incrementAndGet();
+    }
+
+    public void recordFrame() {
+        framesRendered.incrementAndGet();
+    }
+
+    public long messagesIn(MessageType type) {
+        return messagesIn.get(type.ordinal());
+    }
+
+    public long messagesOut(MessageType type) {
+        return messagesOut.get(type.ordinal());
+    }
+
+    public long bytesIn(MessageType type) {
+        return bytesIn.get(type.ordinal());
+    }
+
+    public long bytesOut(MessageType type) {
+        return bytesOut.get(type.ordinal());
+    }
+
+    public Histogram decodeNanos(MessageType type) {
+        return decodeNanos[type.ordinal()];
+    }
+
+    public Histogram effectNanos(MessageType type) {
+        return effectNanos[type.ordinal()];
+    }
+
+    public Histogram imageDecodeNanos() {
+        return imageDecodeNanos;
+    }
+
+    public Histogram pingRttNanos() {
+        return pingRttNanos;
+    }
+
+    public Histogram pingServerNanos() {
+        return pingServerNanos;
+    }
+
+    public long statsApplied() {
+        return statsApplied.get();
+    }
+
+    public long statsCoalesced() {
+        return statsCoalesced.get();
+    }
+
+    public long framesRendered() {
+        return framesRendered.get();
+    }
+
+    public long decodeErrors() {
+        return decodeErrors.get();
+    }
+
+    /** Renders all metrics as a JSON object; times are in nanoseconds. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("{\n  \"startedMillis\": ").append(startedMillis)
+          .append(",\n  \"dumpedMillis\": ").append(System.currentTimeMillis())
+          .append(",\n  \"decodeErrors\": ").append(decodeErrors())
+          .append(",\n  \"statsApplied\": ").append(statsApplied())
+          .append(",\n  \"statsCoalesced\": ").append(statsCoalesced())
+          .append(",\n  \"framesRendered\": ").append(framesRendered())
+          .append(",\n  \"imageDecodeNanos\": ");
+        imageDecodeNanos.appendJson(sb);
+        sb.append(",\n  \"pingRttNanos\": ");
+        pingRttNanos.appendJson(sb);
+        sb.append(",\n  \"pingServerNanos\": ");
+        pingServerNanos.appendJson(sb);
+        sb.append(",\n  \"subchannels\": {");
+        boolean first = true;
+        for (MessageType type : TYPES) {
+            int i = type.ordinal();
+            if (messagesIn.get(i) == 0 && messagesOut.get(i) == 0) continue;
+            sb.append(first ? "\n" : ",\n").append("    \"").append(type.wireName()).append("\": {")
+              .append("\"in\":").append(messagesIn.get(i))
+              .append(",\"out\":").append(messagesOut.get(i))
+              .append(",\"bytesIn\":").append(bytesIn.get(i))
+              .append(",\"bytesOut\":").append(bytesOut.get(i))
+              .append(",\"decodeNanos\":");
+            decodeNanos[i].appendJson(sb);
+            sb.append(",\"effectNanos\":");
+            effectNanos[i].appendJson(sb);
+            sb.append('}');
+            first = false;
+        }
+        sb.append(first ? "}\n}\n" : "\n  }\n}\n");
+        return sb.toString();
+    }
+}
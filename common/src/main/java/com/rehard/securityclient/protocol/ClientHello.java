@@ -0,0 +1,73 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sent once per join instead of a full {@link ModList} plus {@link Hwid}.
+ * Carries a digest of the mod and resource pack set; a server that does
+ * not recognise the digest answers with {@link RequestMods} to get the
+ * full list.
+ *
+ * <p>Also opens the version handshake: the server replies with
+ * {@link ServerHello} carrying the version both sides will speak.
+ *
+ * @param protocolVersion highest {@link MessageCodec#PROTOCOL_VERSION} the client speaks
+ * @param capabilities    {@link MessageCodec#CAPABILITIES} bits the client supports;
+ *                        an optional trailing int, 0 when absent
+ */
+public record ClientHello(ContentHash inventoryDigest, String hwid, int protocolVersion, int capabilities)
+        implements Message {
+
+    public ClientHello(ContentHash inventoryDigest, String hwid, int protocolVersion) {
+        this(inventoryDigest, hwid, protocolVersion, 0);
+    }
+
+    public static ClientHello read(ByteBuf buf) {
+        ContentHash digest = ContentHash.read(buf);
+        String hwid = ModifiedUtf8.read(buf);
+        int version = buf.readInt();
+        int capabilities = buf.isReadable() ? buf.readInt() : 0;
+        return new ClientHello(digest, hwid, version, capabilities);
+    }
+
+    /**
+     * Order-independent digest of a mod and pack set: SHA-256 over the
+     * sorted mod ids, a separator, then the sorted pack names, each
+     * terminated by a newline.  The server must compute it the same way.
+     */
+    public static ContentHash digest(List<String> modIds, List<String> packs) {
+        MessageDigest sha = ContentHash.sha256();
+        update(sha, modIds);
+        sha.update((byte) 0);
+        update(sha, packs);
+        return ContentHash.ofDigest(sha.digest());
+    }
+
+    private static void update(MessageDigest sha, List<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        for (String v : sorted) {
+            sha.update(v.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) '\n');
+        }
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.CLIENT_HELLO;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        inventoryDigest.write(buf);
+        ModifiedUtf8.write(buf, hwid);
+        buf.writeInt(protocolVersion);
+        buf.writeInt(capabilities);
+    }
+}
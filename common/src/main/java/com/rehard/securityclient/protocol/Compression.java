@@ -0,0 +1,104 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate for message bodies, with one reusable {@link Deflater} and
+ * {@link Inflater} per thread.  The inflated size is declared up front and
+ * capped, so a peer cannot make the receiver allocate without bound.
+ */
+final class Compression {
+    /** Set in the first byte, next to the opcode, on compressed messages. */
+    static final int FLAG = 0x80;
+    /** Bodies shorter than this are never compressed. */
+    static final int THRESHOLD = 512;
+    /** Largest inflated body accepted; above the biggest legal StartVote. */
+    static final int MAX_INFLATED = 16 * 1024 * 1024;
+    /** Deflate cannot expand data by more than about 1032:1. */
+    private static final int MAX_RATIO = 1032;
+    /** Scratch buffers above this size are not kept between calls. */
+    private static final int MAX_KEPT_SCRATCH = 1024 * 1024;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    private Compression() {}
+
+    /**
+     * Replaces the body written after the opcode at {@code start} with its
+     * deflated form: {@code opcode | FLAG}, varint inflated length, data.
+     * Small or incompressible bodies are left as they are.
+     *
+     * @return whether the message was compressed
+     */
+    static boolean compress(ByteBuf buf, int start, int opcode) {
+        int bodyStart = start + 1;
+        int length = buf.writerIndex() - bodyStart;
+        if (length < THRESHOLD) return false;
+        Deflater deflater = DEFLATER.get();
+        byte[] out = SCRATCH.get();
+        if (out.length < length) out = new byte[length];
+        int n = 0;
+        try {
+            deflater.setInput(buf.nioBuffer(bodyStart, length));
+            deflater.finish();
+            while (!deflater.finished() && n < length) {
+                n += deflater.deflate(out, n, length - n);
+            }
+            // not smaller than the body, so not worth the receiver's time
+            if (!deflater.finished() || n >= length) return false;
+        } finally {
+            deflater.reset();
+            if (out.length <= MAX_KEPT_SCRATCH) SCRATCH.set(out);
+        }
+        buf.writerIndex(start);
+        buf.writeByte(opcode | FLAG);
+        Wire.writeVarInt(buf, length);
+        buf.writeBytes(out, 0, n);
+        return true;
+    }
+
+    /**
+     * Inflates the rest of {@code buf}, which must expand to exactly
+     * {@code length} bytes, and consumes it.
+     *
+     * @throws ProtocolException if the declared length is out of range or
+     *                           does not match the data
+     */
+    static ByteBuf inflate(ByteBuf buf, int length) {
+        int compressed = buf.readableBytes();
+        if (length < 0 || length > MAX_INFLATED || length > (long) compressed * MAX_RATIO) {
+            throw new ProtocolException("Inflated length out of range: " + length);
+        }
+        Inflater inflater = INFLATER.get();
+        byte[] out = new byte[length];
+        try {
+            inflater.setInput(buf.nioBuffer(buf.readerIndex(), compressed));
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int r = inflater.inflate(out, n, length - n);
+                if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ProtocolException("Truncated compressed body");
+                }
+                n += r;
+            }
+            if (n < length) throw new ProtocolException("Compressed body shorter than its length " + length);
+            // the stream must end exactly at the declared length
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) > 0 || !inflater.finished())) {
+                throw new ProtocolException("Compressed body longer than its length " + length);
+            }
+            buf.skipBytes(compressed);
+            return Unpooled.wrappedBuffer(out);
+        } catch (DataFormatException e) {
+            throw new ProtocolException("Corrupt compressed body: " + e.getMessage());
+        } finally {
+            inflater.reset();
+        }
+    }
+}
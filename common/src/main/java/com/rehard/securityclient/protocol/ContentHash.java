@@ -0,0 +1,88 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 digest used to address content such as vote backgrounds.
+ * Written on the wire as 32 raw bytes.
+ */
+public final class ContentHash {
+    public static final int LENGTH = 32;
+
+    private final byte[] bytes;
+    private final int hash;
+
+    private ContentHash(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    public static ContentHash of(byte[] data) {
+        return new ContentHash(sha256().digest(data));
+    }
+
+    /** Wraps an already computed 32-byte digest. */
+    public static ContentHash ofDigest(byte[] digest) {
+        if (digest.length != LENGTH) throw new IllegalArgumentException("Not a SHA-256 digest");
+        return new ContentHash(digest.clone());
+    }
+
+    public static ContentHash fromHex(String hex) {
+        byte[] bytes = HexFormat.of().parseHex(hex);
+        if (bytes.length != LENGTH) throw new IllegalArgumentException("Not a SHA-256 digest: " + hex);
+        return new ContentHash(bytes);
+    }
+
+    public static ContentHash read(ByteBuf buf) {
+        byte[] bytes = new byte[LENGTH];
+        buf.readBytes(bytes);
+        return new ContentHash(bytes);
+    }
+
+    public void write(ByteBuf buf) {
+        buf.writeBytes(bytes);
+    }
+
+    /** @return whether {@code data} hashes to this digest */
+    public boolean matches(byte[] data) {
+        return MessageDigest.isEqual(bytes, sha256().digest(data));
+    }
+
+    /** @return a copy of the 32 digest bytes */
+    public byte[] toBytes() {
+        return bytes.clone();
+    }
+
+    public String hex() {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ContentHash other && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return hex();
+    }
+
+    /** A fresh SHA-256 digest, for hashes built up incrementally. */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
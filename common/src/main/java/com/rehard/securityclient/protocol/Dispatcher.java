@@ -0,0 +1,32 @@
+package com.rehard.securityclient.protocol;
+
+/**
+ * Handler registry indexed by opcode.  Dispatching is an array lookup and
+ * a single call, so it is cheap enough to run on the render thread for
+ * every packet.  Registration is not thread-safe and must finish before
+ * the first dispatch.
+ */
+public final class Dispatcher {
+    @FunctionalInterface
+    public interface Handler<M extends Message> {
+        void handle(M message);
+    }
+
+    private final Handler<?>[] handlers = new Handler<?>[MessageType.MAX_OPCODE + 1];
+
+    public <M extends Message> Dispatcher register(MessageType type, Class<M> messageClass, Handler<? super M> handler) {
+        if (handlers[type.opcode()] != null) throw new IllegalStateException("Handler already registered for " + type);
+        Handler<Message> checked = m -> handler.handle(messageClass.cast(m));
+        handlers[type.opcode()] = checked;
+        return this;
+    }
+
+    /** @return whether a handler was registered for the message's type */
+    @SuppressWarnings("unchecked")
+    public boolean dispatch(Message message) {
+        Handler<Message> handler = (Handler<Message>) handlers[message.type().opcode()];
+        if (handler == null) return false;
+        handler.handle(message);
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/** Hex-encoded hardware identifier of the client. */
+public record Hwid(String hwid) implements Message {
+
+    public static Hwid read(ByteBuf buf) {
+        return new Hwid(ModifiedUtf8.read(buf));
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.HWID;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, hwid);
+    }
+}
@@ -0,0 +1,34 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/** Raw bytes of a background starting at {@code offset}. */
+public record ImageChunk(ContentHash hash, int offset, byte[] data) implements Message {
+    /** Largest chunk either side will produce or accept. */
+    public static final int MAX_LENGTH = 32 * 1024;
+
+    public static ImageChunk read(ByteBuf buf) {
+        ContentHash hash = ContentHash.read(buf);
+        int offset = buf.readInt();
+        int length = buf.readInt();
+        if (offset < 0 || length < 0 || length > MAX_LENGTH || length > buf.readableBytes()) {
+            throw new ProtocolException("Chunk range out of bounds: " + offset + "+" + length);
+        }
+        byte[] data = new byte[length];
+        buf.readBytes(data);
+        return new ImageChunk(hash, offset, data);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.IMAGE_CHUNK;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        hash.write(buf);
+        buf.writeInt(offset);
+        buf.writeInt(data.length);
+        buf.writeBytes(data);
+    }
+}
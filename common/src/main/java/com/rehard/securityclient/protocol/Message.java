@@ -0,0 +1,23 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A decoded plugin message.  Implementations are records holding exactly
+ * the fields that follow the subchannel name on the wire; arrays they
+ * expose are owned by the record and must not be modified.
+ */
+public sealed interface Message
+        permits RequestMods, RequestHwid, StartVote, VoteStats, VoteStatsDelta, VoteEnd,
+                VoteBackground, ImageChunk, Pong, ServerHello,
+                ClientHello, ModList, Hwid, VoteResponse, RequestVoteStats, RequestImageChunk,
+                ModHashes, Ping, StatsSubscription {
+
+    /** Maximum option/counter count accepted in any vote message. */
+    int MAX_OPTIONS = 10_000;
+
+    MessageType type();
+
+    /** Writes the body of this message (everything after the subchannel). */
+    void write(ByteBuf buf);
+}
@@ -0,0 +1,143 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Encodes and decodes {@link Message}s straight from the payload buffer.
+ *
+ * <p>Two framings share the channel and are told apart by the first byte:
+ * <ul>
+ *   <li>legacy (protocol 1): the DataOutput layout used by the Paper
+ *       plugin, a {@code writeUTF} subchannel name followed by the body.
+ *       Names are shorter than 256 bytes, so the first byte is always 0.</li>
+ *   <li>opcode (protocol 2): a single non-zero byte holding
+ *       {@link MessageType#opcode()}, followed by the same body.</li>
+ *   <li>compressed opcode: the opcode with bit {@code 0x80} set, a varint
+ *       length of the body and the body deflated.  Only written when both
+ *       sides announced {@link #CAP_DEFLATE} in the handshake; bodies
+ *       inflating to more than 16 MiB are rejected.</li>
+ * </ul>
+ * Decoding always accepts both; which one is written is chosen by the
+ * caller after the {@link ClientHello}/{@link ServerHello} handshake.
+ */
+public final class MessageCodec {
+    /** Highest protocol version this codec speaks. */
+    public static final int PROTOCOL_VERSION = 2;
+    /** First version that uses opcode framing. */
+    public static final int OPCODE_VERSION = 2;
+
+    /** Capability bit: the peer accepts deflated bodies. */
+    public static final int CAP_DEFLATE = 1;
+    /** Capability bit: the peer answers {@link Ping} with a timestamped {@link Pong}. */
+    public static final int CAP_PING = 2;
+    /** Capability bit: the peer paces vote stats by {@link StatsSubscription}. */
+    public static final int CAP_STATS_SUBSCRIPTION = 4;
+    /** Capabilities this codec supports, announced in the hello messages. */
+    public static final int CAPABILITIES = CAP_DEFLATE | CAP_PING | CAP_STATS_SUBSCRIPTION;
+
+    private MessageCodec() {}
+
+    /**
+     * Decodes one message.  Trailing bytes after the body are left unread.
+     *
+     * @throws ProtocolException if the subchannel is unknown or the body
+     *                           is malformed
+     */
+    public static Message decode(ByteBuf buf) {
+        if (buf.isReadable() && (buf.getUnsignedByte(buf.readerIndex()) & Compression.FLAG) != 0) {
+            return decodeCompressed(buf);
+        }
+        return decodeBody(readType(buf), buf);
+    }
+
+    private static Message decodeCompressed(ByteBuf buf) {
+        int opcode = buf.readUnsignedByte() & ~Compression.FLAG;
+        MessageType type = MessageType.byOpcode(opcode);
+        if (type == null) throw new UnknownSubchannelException("#" + opcode);
+        ByteBuf body;
+        try {
+            body = Compression.inflate(buf, Wire.readVarInt(buf));
+        } catch (ProtocolException e) {
+            throw new ProtocolException(type.wireName(), e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            throw new ProtocolException(type.wireName(), "Truncated message");
+        }
+        return decodeBody(type, body);
+    }
+
+    private static Message decodeBody(MessageType type, ByteBuf buf) {
+        try {
+            return switch (type) {
+                case REQUEST_MODS -> RequestMods.INSTANCE;
+                case REQUEST_HWID -> RequestHwid.INSTANCE;
+                case START_VOTE -> StartVote.read(buf);
+                case VOTE_STATS -> VoteStats.read(buf);
+                case VOTE_STATS_DELTA -> VoteStatsDelta.read(buf);
+                case VOTE_END -> VoteEnd.read(buf);
+                case VOTE_BACKGROUND -> VoteBackground.read(buf);
+                case IMAGE_CHUNK -> ImageChunk.read(buf);
+                case PONG -> Pong.read(buf);
+                case SERVER_HELLO -> ServerHello.read(buf);
+                case CLIENT_HELLO -> ClientHello.read(buf);
+                case MOD_LIST -> ModList.read(buf);
+                case HWID -> Hwid.read(buf);
+                case VOTE_RESPONSE -> VoteResponse.read(buf);
+                case REQUEST_VOTE_STATS -> RequestVoteStats.read(buf);
+                case REQUEST_IMAGE_CHUNK -> RequestImageChunk.read(buf);
+                case MOD_HASHES -> ModHashes.read(buf);
+                case PING -> Ping.read(buf);
+                case STATS_SUBSCRIPTION -> StatsSubscription.read(buf);
+            };
+        } catch (ProtocolException e) {
+            if (e.subchannel() != null) throw e;
+            throw new ProtocolException(type.wireName(), e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            throw new ProtocolException(type.wireName(), "Truncated message");
+        }
+    }
+
+    /** Encodes with the legacy string header. */
+    public static void encode(ByteBuf buf, Message message) {
+        encode(buf, message, false);
+    }
+
+    public static void encode(ByteBuf buf, Message message, boolean opcodes) {
+        if (opcodes) {
+            buf.writeByte(message.type().opcode());
+        } else {
+            ModifiedUtf8.write(buf, message.type().wireName());
+        }
+        message.write(buf);
+    }
+
+    /**
+     * Encodes with opcode framing, deflating bodies of at least 512 bytes
+     * when {@code compress} is set and it makes them smaller.
+     */
+    public static void encode(ByteBuf buf, Message message, boolean opcodes, boolean compress) {
+        int start = buf.writerIndex();
+        encode(buf, message, opcodes);
+        if (compress && opcodes) Compression.compress(buf, start, message.type().opcode());
+    }
+
+    private static MessageType readType(ByteBuf buf) {
+        if (!buf.isReadable()) throw new ProtocolException("Missing subchannel");
+        int first = buf.getUnsignedByte(buf.readerIndex());
+        if (first != 0) {
+            MessageType type = MessageType.byOpcode(first);
+            if (type == null) throw new UnknownSubchannelException("#" + first);
+            buf.skipBytes(1);
+            return type;
+        }
+        if (buf.readableBytes() < 2) throw new ProtocolException("Missing subchannel");
+        int len = buf.getUnsignedShort(buf.readerIndex());
+        if (len > buf.readableBytes() - 2) throw new ProtocolException("Truncated subchannel");
+        MessageType type = MessageType.match(buf, buf.readerIndex() + 2, len);
+        if (type == null) {
+            // only unknown names are ever turned into a String
+            throw new UnknownSubchannelException(ModifiedUtf8.read(buf));
+        }
+        buf.skipBytes(2 + len);
+        return type;
+    }
+}
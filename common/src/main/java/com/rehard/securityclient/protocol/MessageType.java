@@ -0,0 +1,83 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Subchannels spoken on {@code ssavs:security}.  The wire name is the
+ * {@code writeUTF} string that prefixes every legacy plugin message; the
+ * opcode replaces it once both sides negotiated protocol version 2 (see
+ * {@link MessageCodec}).  Opcodes are part of the protocol and must never
+ * be renumbered.
+ */
+public enum MessageType {
+    // server -> client
+    REQUEST_MODS("RequestMods", 0x01),
+    REQUEST_HWID("RequestHwid", 0x02),
+    START_VOTE("StartVote", 0x03),
+    VOTE_STATS("VoteStats", 0x04),
+    VOTE_STATS_DELTA("VoteStatsDelta", 0x05),
+    VOTE_END("VoteEnd", 0x06),
+    VOTE_BACKGROUND("VoteBackground", 0x07),
+    IMAGE_CHUNK("ImageChunk", 0x08),
+    PONG("Pong", 0x09),
+    SERVER_HELLO("ServerHello", 0x0A),
+    // client -> server
+    CLIENT_HELLO("ClientHello", 0x10),
+    MOD_LIST("ModList", 0x11),
+    HWID("Hwid", 0x12),
+    VOTE_RESPONSE("VoteResponse", 0x13),
+    REQUEST_VOTE_STATS("RequestVoteStats", 0x14),
+    REQUEST_IMAGE_CHUNK("RequestImageChunk", 0x15),
+    MOD_HASHES("ModHashes", 0x16),
+    PING("Ping", 0x17),
+    STATS_SUBSCRIPTION("StatsSubscription", 0x18);
+
+    /** Opcodes occupy the low seven bits of the first byte. */
+    public static final int MAX_OPCODE = 0x7F;
+
+    private static final MessageType[] VALUES = values();
+    private static final MessageType[] BY_OPCODE = new MessageType[MAX_OPCODE + 1];
+
+    static {
+        for (MessageType type : VALUES) {
+            if (BY_OPCODE[type.opcode] != null) throw new ExceptionInInitializerError("Duplicate opcode " + type.opcode);
+            BY_OPCODE[type.opcode] = type;
+        }
+    }
+
+    private final String wireName;
+    private final byte[] wireBytes;
+    private final int opcode;
+
+    MessageType(String wireName, int opcode) {
+        this.wireName = wireName;
+        this.wireBytes = wireName.getBytes(StandardCharsets.US_ASCII);
+        this.opcode = opcode;
+    }
+
+    public String wireName() {
+        return wireName;
+    }
+
+    public int opcode() {
+        return opcode;
+    }
+
+    /** @return the type with this opcode, or {@code null} */
+    public static MessageType byOpcode(int opcode) {
+        return opcode > 0 && opcode <= MAX_OPCODE ? BY_OPCODE[opcode] : null;
+    }
+
+    /**
+     * Looks up the type whose name occupies {@code len} bytes at
+     * {@code index}, or returns {@code null} if no subchannel matches.
+     */
+    static MessageType match(ByteBuf buf, int index, int len) {
+        for (MessageType type : VALUES) {
+            if (ModifiedUtf8.regionEquals(buf, index, len, type.wireBytes)) return type;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SHA-256 of the files behind the installed mods and enabled resource
+ * packs, sent after {@link ModList}.  A mod loaded from several paths has
+ * one entry per path; mods without a file of their own (builtin or nested
+ * jars) and non-file packs are absent.
+ */
+public record ModHashes(List<Entry> mods, List<Entry> packs) implements Message {
+
+    /** @param name mod id or resource pack name, as in {@link ModList} */
+    public record Entry(String name, ContentHash hash) {}
+
+    public static ModHashes read(ByteBuf buf) {
+        List<Entry> mods = readEntries(buf, Wire.readCount(buf, ModList.MAX_ENTRIES, "Mod hash"));
+        List<Entry> packs = readEntries(buf, Wire.readCount(buf, ModList.MAX_ENTRIES, "Pack hash"));
+        return new ModHashes(mods, packs);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.MOD_HASHES;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        writeEntries(buf, mods);
+        writeEntries(buf, packs);
+    }
+
+    private static List<Entry> readEntries(ByteBuf buf, int n) {
+        // each entry is at least a two-byte name length and the digest
+        if ((long) n * (2 + ContentHash.LENGTH) > buf.readableBytes()) {
+            throw new ProtocolException(n + " hashes exceed remaining " + buf.readableBytes() + " bytes");
+        }
+        List<Entry> entries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String name = ModifiedUtf8.read(buf);
+            entries.add(new Entry(name, ContentHash.read(buf)));
+        }
+        return List.copyOf(entries);
+    }
+
+    private static void writeEntries(ByteBuf buf, List<Entry> entries) {
+        buf.writeInt(entries.size());
+        for (Entry e : entries) {
+            ModifiedUtf8.write(buf, e.name());
+            e.hash().write(buf);
+        }
+    }
+}
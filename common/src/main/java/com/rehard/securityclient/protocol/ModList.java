@@ -0,0 +1,28 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.List;
+
+/** Installed mod ids and enabled resource pack names. */
+public record ModList(List<String> modIds, List<String> packs) implements Message {
+    /** Upper bound on either list; generous for the largest modpacks. */
+    public static final int MAX_ENTRIES = 10_000;
+
+    public static ModList read(ByteBuf buf) {
+        List<String> modIds = Wire.readStrings(buf, Wire.readCount(buf, MAX_ENTRIES, "Mod"));
+        List<String> packs = Wire.readStrings(buf, Wire.readCount(buf, MAX_ENTRIES, "Pack"));
+        return new ModList(modIds, packs);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.MOD_LIST;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        Wire.writeStrings(buf, modIds);
+        Wire.writeStrings(buf, packs);
+    }
+}
@@ -0,0 +1,101 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reads and writes strings in the format of {@link java.io.DataOutput#writeUTF}
+ * (unsigned short length followed by modified UTF-8) directly on a Netty
+ * buffer, so no intermediate {@code byte[]} is needed on either side.
+ */
+public final class ModifiedUtf8 {
+    /** Largest encoded length representable by the unsigned short prefix. */
+    public static final int MAX_ENCODED_LENGTH = 0xFFFF;
+
+    private ModifiedUtf8() {}
+
+    public static String read(ByteBuf buf) {
+        int len = buf.readUnsignedShort();
+        if (len > buf.readableBytes()) {
+            throw new ProtocolException("String of " + len + " bytes exceeds remaining " + buf.readableBytes());
+        }
+        int i = buf.readerIndex();
+        int end = i + len;
+        char[] chars = new char[len];
+        int n = 0;
+        while (i < end) {
+            int b = buf.getByte(i) & 0xFF;
+            if (b < 0x80) {
+                chars[n++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0) {
+                if (i + 2 > end) throw malformed(i);
+                int b2 = buf.getByte(i + 1);
+                if ((b2 & 0xC0) != 0x80) throw malformed(i);
+                chars[n++] = (char) (((b & 0x1F) << 6) | (b2 & 0x3F));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0) {
+                if (i + 3 > end) throw malformed(i);
+                int b2 = buf.getByte(i + 1);
+                int b3 = buf.getByte(i + 2);
+                if ((b2 & 0xC0) != 0x80 || (b3 & 0xC0) != 0x80) throw malformed(i);
+                chars[n++] = (char) (((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+                i += 3;
+            } else {
+                throw malformed(i);
+            }
+        }
+        buf.readerIndex(end);
+        return new String(chars, 0, n);
+    }
+
+    public static void write(ByteBuf buf, String s) {
+        int len = encodedLength(s);
+        if (len > MAX_ENCODED_LENGTH) {
+            throw new ProtocolException("String too long to encode: " + len + " bytes");
+        }
+        buf.ensureWritable(2 + len);
+        buf.writeShort(len);
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c != 0 && c < 0x80) {
+                buf.writeByte(c);
+            } else if (c < 0x800) {
+                buf.writeByte(0xC0 | (c >> 6));
+                buf.writeByte(0x80 | (c & 0x3F));
+            } else {
+                buf.writeByte(0xE0 | (c >> 12));
+                buf.writeByte(0x80 | ((c >> 6) & 0x3F));
+                buf.writeByte(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /** Number of bytes {@code s} occupies after the length prefix. */
+    public static int encodedLength(String s) {
+        int len = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c != 0 && c < 0x80) len += 1;
+            else if (c < 0x800) len += 2;
+            else len += 3;
+        }
+        return len;
+    }
+
+    /**
+     * Compares {@code len} bytes at {@code index} with {@code ascii} without
+     * moving the reader index.  Used to match subchannel names without
+     * materialising a String.
+     */
+    static boolean regionEquals(ByteBuf buf, int index, int len, byte[] ascii) {
+        if (len != ascii.length) return false;
+        for (int i = 0; i < len; i++) {
+            if (buf.getByte(index + i) != ascii[i]) return false;
+        }
+        return true;
+    }
+
+    private static ProtocolException malformed(int index) {
+        return new ProtocolException("Malformed modified UTF-8 at offset " + index);
+    }
+}
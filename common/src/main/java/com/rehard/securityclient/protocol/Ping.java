@@ -0,0 +1,28 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Client's round-trip probe.  The server answers with a {@link Pong}
+ * echoing {@code sentNanos}; only sent when the server announced
+ * {@link MessageCodec#CAP_PING}.
+ *
+ * @param sentNanos the client's {@link System#nanoTime()} at sending,
+ *                  meaningless to the server
+ */
+public record Ping(long sentNanos) implements Message {
+
+    public static Ping read(ByteBuf buf) {
+        return new Ping(buf.readLong());
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.PING;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        buf.writeLong(sentNanos);
+    }
+}
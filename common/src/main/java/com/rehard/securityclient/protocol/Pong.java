@@ -0,0 +1,38 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reply to a connectivity check.  The legacy Pong has no body; an answer
+ * to a {@link Ping} carries two trailing longs.
+ *
+ * @param pingNanos   {@link Ping#sentNanos()} echoed back, or
+ *                    {@link #NO_PING} for a legacy Pong
+ * @param serverNanos time the server held the Ping before answering
+ */
+public record Pong(long pingNanos, long serverNanos) implements Message {
+    public static final long NO_PING = Long.MIN_VALUE;
+    public static final Pong INSTANCE = new Pong(NO_PING, 0);
+
+    public static Pong read(ByteBuf buf) {
+        if (!buf.isReadable()) return INSTANCE;
+        return new Pong(buf.readLong(), buf.readLong());
+    }
+
+    /** Whether this answers a {@link Ping}, rather than being a legacy Pong. */
+    public boolean answersPing() {
+        return pingNanos != NO_PING;
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.PONG;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        if (!answersPing()) return;
+        buf.writeLong(pingNanos);
+        buf.writeLong(serverNanos);
+    }
+}
@@ -0,0 +1,30 @@
+package com.rehard.securityclient.protocol;
+
+/**
+ * Thrown when a plugin message cannot be decoded: the subchannel is
+ * unknown, a length or count is out of range, or the buffer ends early.
+ * Stack traces are not captured since these are expected on a hostile
+ * or outdated server and are only ever logged.
+ */
+public class ProtocolException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String subchannel;
+
+    public ProtocolException(String message) {
+        this(null, message);
+    }
+
+    public ProtocolException(String subchannel, String message) {
+        super(message, null, false, false);
+        this.subchannel = subchannel;
+    }
+
+    /**
+     * @return the subchannel that failed to decode, or {@code null} if the
+     *         header itself could not be read
+     */
+    public String subchannel() {
+        return subchannel;
+    }
+}
@@ -0,0 +1,18 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/** Server asks the client to resend its hardware identifier. */
+public record RequestHwid() implements Message {
+    public static final RequestHwid INSTANCE = new RequestHwid();
+
+    @Override
+    public MessageType type() {
+        return MessageType.REQUEST_HWID;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        // no body
+    }
+}
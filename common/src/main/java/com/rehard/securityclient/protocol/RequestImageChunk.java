@@ -0,0 +1,33 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Client asks for bytes {@code [offset, offset + length)} of a background.
+ * Each request is one credit: the server answers it with exactly one
+ * {@link ImageChunk}, so the client controls how much is in flight.
+ */
+public record RequestImageChunk(ContentHash hash, int offset, int length) implements Message {
+
+    public static RequestImageChunk read(ByteBuf buf) {
+        ContentHash hash = ContentHash.read(buf);
+        int offset = buf.readInt();
+        int length = buf.readInt();
+        if (offset < 0 || length <= 0 || length > ImageChunk.MAX_LENGTH) {
+            throw new ProtocolException("Chunk range out of bounds: " + offset + "+" + length);
+        }
+        return new RequestImageChunk(hash, offset, length);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.REQUEST_IMAGE_CHUNK;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        hash.write(buf);
+        buf.writeInt(offset);
+        buf.writeInt(length);
+    }
+}
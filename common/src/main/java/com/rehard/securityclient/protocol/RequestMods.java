@@ -0,0 +1,18 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/** Server asks the client to resend its mod and resource pack list. */
+public record RequestMods() implements Message {
+    public static final RequestMods INSTANCE = new RequestMods();
+
+    @Override
+    public MessageType type() {
+        return MessageType.REQUEST_MODS;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        // no body
+    }
+}
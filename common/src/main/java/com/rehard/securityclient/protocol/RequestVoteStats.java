@@ -0,0 +1,24 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Client asks for a full {@link VoteStats} snapshot after missing a
+ * {@link VoteStatsDelta} in the sequence.
+ */
+public record RequestVoteStats(String voteId) implements Message {
+
+    public static RequestVoteStats read(ByteBuf buf) {
+        return new RequestVoteStats(ModifiedUtf8.read(buf));
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.REQUEST_VOTE_STATS;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+    }
+}
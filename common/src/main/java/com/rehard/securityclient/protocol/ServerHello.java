@@ -0,0 +1,34 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Server's answer to {@link ClientHello}: the protocol version both sides
+ * will speak, i.e. the lower of the two.  Always sent with the legacy
+ * string header, since the client cannot know the framing before it.
+ *
+ * @param capabilities the {@link MessageCodec#CAPABILITIES} bits both sides
+ *                     will use; an optional trailing int, 0 when absent
+ */
+public record ServerHello(int protocolVersion, int capabilities) implements Message {
+
+    public ServerHello(int protocolVersion) {
+        this(protocolVersion, 0);
+    }
+
+    public static ServerHello read(ByteBuf buf) {
+        int version = buf.readInt();
+        return new ServerHello(version, buf.isReadable() ? buf.readInt() : 0);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.SERVER_HELLO;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        buf.writeInt(protocolVersion);
+        if (capabilities != 0) buf.writeInt(capabilities);
+    }
+}
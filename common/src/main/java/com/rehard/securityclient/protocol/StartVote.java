@@ -0,0 +1,45 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.List;
+
+/**
+ * Opens the voting UI.
+ *
+ * @param imageData Base64 background image or an {@code http(s)} URL of one,
+ *                  or {@code null} if none
+ */
+public record StartVote(String voteId, String title, String description, List<String> options,
+                        boolean allowMove, String imageData, int durationSec) implements Message {
+
+    public static StartVote read(ByteBuf buf) {
+        String voteId = ModifiedUtf8.read(buf);
+        String title = ModifiedUtf8.read(buf);
+        String desc = ModifiedUtf8.read(buf);
+        int optionCount = Wire.readCount(buf, MAX_OPTIONS, "Option");
+        List<String> options = Wire.readStrings(buf, optionCount);
+        boolean allowMove = buf.readBoolean();
+        boolean hasImage = buf.readBoolean();
+        String imageData = hasImage ? ModifiedUtf8.read(buf) : null;
+        int duration = buf.readInt();
+        return new StartVote(voteId, title, desc, options, allowMove, imageData, duration);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.START_VOTE;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+        ModifiedUtf8.write(buf, title);
+        ModifiedUtf8.write(buf, description);
+        Wire.writeStrings(buf, options);
+        buf.writeBoolean(allowMove);
+        buf.writeBoolean(imageData != null);
+        if (imageData != null) ModifiedUtf8.write(buf, imageData);
+        buf.writeInt(durationSec);
+    }
+}
@@ -0,0 +1,42 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Client tells the server how many stats updates of a vote it wants.
+ * Sent when the vote screen opens or closes and when the client's frame
+ * rate moves to another tier; only to servers that announced
+ * {@link MessageCodec#CAP_STATS_SUBSCRIPTION}.  Until the first one the
+ * server sends at its own rate.
+ *
+ * <p>Wire layout after the vote id: a boolean, then a varint rate.
+ *
+ * @param watching     whether the stats are on screen; when {@code false}
+ *                     the server sends no updates until watching resumes
+ *                     (VoteEnd still carries the final counts)
+ * @param maxPerSecond most VoteStats/VoteStatsDelta per second wanted
+ *                     while watching, 1 to {@link #MAX_RATE}
+ */
+public record StatsSubscription(String voteId, boolean watching, int maxPerSecond) implements Message {
+    public static final int MAX_RATE = 1000;
+
+    public static StatsSubscription read(ByteBuf buf) {
+        String voteId = ModifiedUtf8.read(buf);
+        boolean watching = buf.readBoolean();
+        int rate = Wire.readVarInt(buf);
+        if (rate < 1 || rate > MAX_RATE) throw new ProtocolException("Stats rate out of range: " + rate);
+        return new StatsSubscription(voteId, watching, rate);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.STATS_SUBSCRIPTION;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+        buf.writeBoolean(watching);
+        Wire.writeVarInt(buf, maxPerSecond);
+    }
+}
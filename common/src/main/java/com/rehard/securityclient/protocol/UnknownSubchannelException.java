@@ -0,0 +1,10 @@
+package com.rehard.securityclient.protocol;
+
+/** Thrown for a well-formed header naming a subchannel this client does not speak. */
+public class UnknownSubchannelException extends ProtocolException {
+    private static final long serialVersionUID = 1L;
+
+    public UnknownSubchannelException(String subchannel) {
+        super(subchannel, "Unknown subchannel: " + subchannel);
+    }
+}
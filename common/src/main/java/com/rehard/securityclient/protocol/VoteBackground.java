@@ -0,0 +1,34 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Announces the background of a vote by content hash.  The client serves
+ * it from its local cache or pulls it with {@link RequestImageChunk}.
+ *
+ * @param size image size in bytes
+ */
+public record VoteBackground(String voteId, ContentHash hash, int size) implements Message {
+    /** Largest background the client will download. */
+    public static final int MAX_SIZE = 8 * 1024 * 1024;
+
+    public static VoteBackground read(ByteBuf buf) {
+        String voteId = ModifiedUtf8.read(buf);
+        ContentHash hash = ContentHash.read(buf);
+        int size = buf.readInt();
+        if (size <= 0 || size > MAX_SIZE) throw new ProtocolException("Background size out of range: " + size);
+        return new VoteBackground(voteId, hash, size);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.VOTE_BACKGROUND;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+        hash.write(buf);
+        buf.writeInt(size);
+    }
+}
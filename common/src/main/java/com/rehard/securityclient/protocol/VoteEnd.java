@@ -0,0 +1,30 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Finalises a vote.  An out-of-range counter count is tolerated and read
+ * as "no final counts", matching the original client.
+ */
+public record VoteEnd(String voteId, String reason, int[] counts) implements Message {
+
+    public static VoteEnd read(ByteBuf buf) {
+        String voteId = ModifiedUtf8.read(buf);
+        String reason = ModifiedUtf8.read(buf);
+        int n = buf.readInt();
+        if (n < 0 || n > MAX_OPTIONS) n = 0;
+        return new VoteEnd(voteId, reason, Wire.readInts(buf, n));
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.VOTE_END;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+        ModifiedUtf8.write(buf, reason);
+        Wire.writeInts(buf, counts);
+    }
+}
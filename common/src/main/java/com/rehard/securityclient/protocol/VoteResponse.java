@@ -0,0 +1,22 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/** The option a player picked in a vote. */
+public record VoteResponse(String voteId, int optionIndex) implements Message {
+
+    public static VoteResponse read(ByteBuf buf) {
+        return new VoteResponse(ModifiedUtf8.read(buf), buf.readInt());
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.VOTE_RESPONSE;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+        buf.writeInt(optionIndex);
+    }
+}
@@ -0,0 +1,39 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Full snapshot of the per-option counters of a running vote.
+ *
+ * @param seq sequence number of the snapshot in the vote's
+ *            {@link VoteStatsDelta} stream, or {@link #NO_SEQ} when sent
+ *            by a server that does not use deltas.  Carried as an
+ *            optional trailing int so older servers stay compatible.
+ */
+public record VoteStats(String voteId, int[] counts, int seq) implements Message {
+    public static final int NO_SEQ = -1;
+
+    public VoteStats(String voteId, int[] counts) {
+        this(voteId, counts, NO_SEQ);
+    }
+
+    public static VoteStats read(ByteBuf buf) {
+        String voteId = ModifiedUtf8.read(buf);
+        int n = Wire.readCount(buf, MAX_OPTIONS, "Counter");
+        int[] counts = Wire.readInts(buf, n);
+        int seq = buf.isReadable() ? buf.readInt() : NO_SEQ;
+        return new VoteStats(voteId, counts, seq < 0 ? NO_SEQ : seq);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.VOTE_STATS;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+        Wire.writeInts(buf, counts);
+        if (seq != NO_SEQ) buf.writeInt(seq);
+    }
+}
@@ -0,0 +1,55 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Incremental update of a vote's counters: only the options that changed
+ * since sequence {@code seq - 1}.
+ *
+ * <p>Wire layout after the vote id: varint {@code seq}, varint entry
+ * count, then per entry a varint gap to the previous option index and a
+ * zigzag varint increment.  Indices are strictly ascending.
+ */
+public record VoteStatsDelta(String voteId, int seq, int[] indices, int[] increments) implements Message {
+
+    public static VoteStatsDelta read(ByteBuf buf) {
+        String voteId = ModifiedUtf8.read(buf);
+        int seq = Wire.readVarInt(buf);
+        int n = Wire.readVarInt(buf);
+        if (n < 0 || n > MAX_OPTIONS) throw new ProtocolException("Delta count out of range: " + n);
+        // each entry takes at least two bytes
+        if ((long) n * 2 > buf.readableBytes()) {
+            throw new ProtocolException(n + " entries exceed remaining " + buf.readableBytes() + " bytes");
+        }
+        int[] indices = new int[n];
+        int[] increments = new int[n];
+        int index = -1;
+        for (int i = 0; i < n; i++) {
+            int gap = Wire.readVarInt(buf);
+            if (gap < 0 || gap >= MAX_OPTIONS) throw new ProtocolException("Option gap out of range: " + gap);
+            index += gap + 1;
+            if (index >= MAX_OPTIONS) throw new ProtocolException("Option index out of range: " + index);
+            indices[i] = index;
+            increments[i] = Wire.readSignedVarInt(buf);
+        }
+        return new VoteStatsDelta(voteId, seq, indices, increments);
+    }
+
+    @Override
+    public MessageType type() {
+        return MessageType.VOTE_STATS_DELTA;
+    }
+
+    @Override
+    public void write(ByteBuf buf) {
+        ModifiedUtf8.write(buf, voteId);
+        Wire.writeVarInt(buf, seq);
+        Wire.writeVarInt(buf, indices.length);
+        int prev = -1;
+        for (int i = 0; i < indices.length; i++) {
+            Wire.writeVarInt(buf, indices[i] - prev - 1);
+            Wire.writeSignedVarInt(buf, increments[i]);
+            prev = indices[i];
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared field encodings for message bodies.  Counts are the
+ * {@code writeInt} prefixes used by the original DataOutput format.
+ */
+final class Wire {
+    private Wire() {}
+
+    static int readCount(ByteBuf buf, int max, String what) {
+        int n = buf.readInt();
+        if (n < 0 || n > max) throw new ProtocolException(what + " count out of range: " + n);
+        return n;
+    }
+
+    static int[] readInts(ByteBuf buf, int n) {
+        if ((long) n * Integer.BYTES > buf.readableBytes()) {
+            throw new ProtocolException(n + " ints exceed remaining " + buf.readableBytes() + " bytes");
+        }
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) values[i] = buf.readInt();
+        return values;
+    }
+
+    static void writeInts(ByteBuf buf, int[] values) {
+        buf.writeInt(values.length);
+        for (int v : values) buf.writeInt(v);
+    }
+
+    static List<String> readStrings(ByteBuf buf, int n) {
+        // every string costs at least its two length bytes
+        if ((long) n * 2 > buf.readableBytes()) {
+            throw new ProtocolException(n + " strings exceed remaining " + buf.readableBytes() + " bytes");
+        }
+        List<String> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) values.add(ModifiedUtf8.read(buf));
+        return List.copyOf(values);
+    }
+
+    static void writeStrings(ByteBuf buf, List<String> values) {
+        buf.writeInt(values.size());
+        for (String v : values) ModifiedUtf8.write(buf, v);
+    }
+
+    /** Reads an unsigned LEB128 varint of at most five bytes. */
+    static int readVarInt(ByteBuf buf) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buf.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new ProtocolException("VarInt too long");
+    }
+
+    static void writeVarInt(ByteBuf buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte(value);
+    }
+
+    /** Reads a zigzag-encoded signed varint. */
+    static int readSignedVarInt(ByteBuf buf) {
+        int v = readVarInt(buf);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static void writeSignedVarInt(ByteBuf buf, int value) {
+        writeVarInt(buf, (value << 1) ^ (value >> 31));
+    }
+}
@@ -0,0 +1,77 @@
+package com.rehard.securityclient.standin;
+
+import java.util.Locale;
+
+/**
+ * Load shape for a {@link StandinServer} run.
+ *
+ * @param votes          number of votes to run back to back
+ * @param options        options per vote
+ * @param statsPerSecond stats updates sent per second while a vote is open
+ * @param voteSeconds    how long each vote stays open before VoteEnd
+ * @param imageBytes     approximate size of the PNG background announced
+ *                       per vote, or 0 for none
+ * @param urlImages      announce the background as a URL of a
+ *                       {@link StandinImageServer} in StartVote instead of
+ *                       by hash; every vote reuses one image, so later
+ *                       votes are revalidated rather than downloaded
+ * @param deltas         send VoteStatsDelta with a full snapshot every
+ *                       {@link StandinServer#SNAPSHOT_EVERY} updates,
+ *                       instead of full VoteStats only
+ * @param seed           seed for vote counts and images, for reproducible runs
+ */
+public record Profile(int votes, int options, int statsPerSecond, int voteSeconds,
+                      int imageBytes, boolean urlImages, boolean deltas, long seed) {
+
+    public static final Profile DEFAULT = new Profile(3, 8, 20, 10, 0, false, true, 1);
+
+    public Profile {
+        if (votes < 1 || options < 1 || options > 10_000 || statsPerSecond < 0 || voteSeconds < 1
+                || imageBytes < 0 || imageBytes > 8 * 1024 * 1024) {
+            throw new IllegalArgumentException("Profile out of range");
+        }
+    }
+
+    /**
+     * Parses {@code key=value} pairs separated by commas or spaces, e.g.
+     * {@code votes=5,options=200,rate=50,duration=20,image=262144,url=true,deltas=false}.
+     * Unset keys keep their {@link #DEFAULT}.
+     *
+     * @throws IllegalArgumentException on an unknown key or bad value
+     */
+    public static Profile parse(String spec) {
+        int votes = DEFAULT.votes, options = DEFAULT.options, rate = DEFAULT.statsPerSecond;
+        int duration = DEFAULT.voteSeconds, image = DEFAULT.imageBytes;
+        boolean url = DEFAULT.urlImages, deltas = DEFAULT.deltas;
+        long seed = DEFAULT.seed;
+        for (String pair : spec.trim().split("[,\\s]+")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + pair);
+            String key = pair.substring(0, eq).toLowerCase(Locale.ROOT);
+            String value = pair.substring(eq + 1);
+            try {
+                switch (key) {
+                    case "votes" -> votes = Integer.parseInt(value);
+                    case "options" -> options = Integer.parseInt(value);
+                    case "rate" -> rate = Integer.parseInt(value);
+                    case "duration" -> duration = Integer.parseInt(value);
+                    case "image" -> image = Integer.parseInt(value);
+                    case "url" -> url = Boolean.parseBoolean(value);
+                    case "deltas" -> deltas = Boolean.parseBoolean(value);
+                    case "seed" -> seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown key: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad value for " + key + ": " + value);
+            }
+        }
+        return new Profile(votes, options, rate, duration, image, url, deltas, seed);
+    }
+
+    @Override
+    public String toString() {
+        return "votes=" + votes + ",options=" + options + ",rate=" + statsPerSecond + ",duration=" + voteSeconds
+            + ",image=" + imageBytes + ",url=" + urlImages + ",deltas=" + deltas + ",seed=" + seed;
+    }
+}
@@ -0,0 +1,109 @@
+package com.rehard.securityclient.standin;
+
+import com.rehard.securityclient.protocol.ContentHash;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback HTTP server standing in for the public host of URL vote
+ * backgrounds.  Each published image is served under
+ * {@code /bg/<name>.png} with an {@code ETag} (its hash) and a
+ * {@code Last-Modified}, and conditional requests are answered with
+ * {@code 304} like a CDN would, so the client's revalidation path can be
+ * exercised without a network.
+ */
+public final class StandinImageServer implements AutoCloseable {
+    private record Image(byte[] data, String etag, Instant modified) {}
+
+    private final HttpServer server;
+    private final Map<String, Image> images = new ConcurrentHashMap<>();
+    private final AtomicLong full = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+
+    /** Binds to an ephemeral loopback port and starts serving. */
+    public StandinImageServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/bg/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    /**
+     * Serves {@code data} under {@code name}, replacing an earlier image of
+     * that name.
+     *
+     * @return the URL to announce in StartVote
+     */
+    public String publish(String name, byte[] data) {
+        images.put(name, new Image(data.clone(), '"' + ContentHash.of(data).hex() + '"',
+            Instant.now().truncatedTo(ChronoUnit.SECONDS)));
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/bg/" + name + ".png";
+    }
+
+    /** Request counts as a JSON object. */
+    public String statsJson() {
+        return "{\"full\":" + full.get() + ",\"notModified\":" + notModified.get() + ",\"missing\":" + missing.get() + "}";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String name = path.endsWith(".png") ? path.substring("/bg/".length(), path.length() - 4) : "";
+            Image image = images.get(name);
+            if (image == null || !exchange.getRequestMethod().equals("GET")) {
+                missing.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            var headers = exchange.getResponseHeaders();
+            headers.set("ETag", image.etag);
+            headers.set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(image.modified.atZone(ZoneOffset.UTC)));
+            if (notModified(exchange, image)) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            full.incrementAndGet();
+            headers.set("Content-Type", "image/png");
+            exchange.sendResponseHeaders(200, image.data.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(image.data);
+            }
+        }
+    }
+
+    /** If-None-Match takes precedence over If-Modified-Since, as in RFC 9110. */
+    private static boolean notModified(HttpExchange exchange, Image image) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) return ifNoneMatch.contains(image.etag);
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince == null) return false;
+        try {
+            Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !image.modified.isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,369 @@
+package com.rehard.securityclient.standin;
+
+import com.rehard.securityclient.metrics.Histogram;
+import com.rehard.securityclient.protocol.ClientHello;
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.Hwid;
+import com.rehard.securityclient.protocol.ImageChunk;
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.MessageCodec;
+import com.rehard.securityclient.protocol.MessageType;
+import com.rehard.securityclient.protocol.ModHashes;
+import com.rehard.securityclient.protocol.ModList;
+import com.rehard.securityclient.protocol.Ping;
+import com.rehard.securityclient.protocol.Pong;
+import com.rehard.securityclient.protocol.ProtocolException;
+import com.rehard.securityclient.protocol.RequestHwid;
+import com.rehard.securityclient.protocol.RequestImageChunk;
+import com.rehard.securityclient.protocol.RequestMods;
+import com.rehard.securityclient.protocol.RequestVoteStats;
+import com.rehard.securityclient.protocol.ServerHello;
+import com.rehard.securityclient.protocol.StartVote;
+import com.rehard.securityclient.protocol.StatsSubscription;
+import com.rehard.securityclient.protocol.VoteBackground;
+import com.rehard.securityclient.protocol.VoteEnd;
+import com.rehard.securityclient.protocol.VoteResponse;
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+import com.rehard.securityclient.vote.StatsThrottle;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Headless stand-in for the Paper plugin's side of {@code ssavs:security},
+ * for load-testing a client without a server.
+ *
+ * <p>It answers the ClientHello like the plugin does (ServerHello,
+ * RequestMods, RequestHwid), then runs the votes of a {@link Profile}:
+ * StartVote, an optional background served in chunks or by URL from a
+ * {@link StandinImageServer}, stats at the configured rate and VoteEnd.
+ * Stats are paced by the client's {@link StatsSubscription}, as the plugin
+ * does, through a {@link StatsThrottle} per vote.
+ * Everything the client sends back is decoded and counted, and
+ * request/response latencies go into histograms reported by
+ * {@link #reportJson()}.
+ *
+ * <p>The server has no thread and no clock of its own: the caller passes
+ * {@link System#nanoTime()} to {@link #tick} and {@link #fromClient}, and
+ * encoded messages for the client are handed to the {@code toClient}
+ * callback.  All methods are synchronized, so the two may come from
+ * different threads.
+ */
+public final class StandinServer {
+    /** With deltas on, every n-th stats update is a full snapshot. */
+    public static final int SNAPSHOT_EVERY = 20;
+    private static final long VOTE_GAP_NANOS = 500_000_000L;
+    /** Most options whose counters change per stats update. */
+    private static final int MAX_CHANGED = 8;
+    private static final MessageType[] TYPES = MessageType.values();
+
+    private static final class Vote {
+        final String id;
+        final int[] counts;
+        final long startedAt;
+        final long endsAt;
+        int seq;
+        final StatsThrottle throttle = new StatsThrottle();
+        byte[] image;
+        ContentHash hash;
+
+        Vote(String id, int options, long startedAt, long endsAt) {
+            this.id = id;
+            this.counts = new int[options];
+            this.startedAt = startedAt;
+            this.endsAt = endsAt;
+        }
+    }
+
+    private final Profile profile;
+    private final Consumer<ByteBuf> toClient;
+    private final Random random;
+    private final long statsPeriodNanos;
+    private final StandinImageServer images;
+    /** URL of the background shared by all votes when the profile uses URLs. */
+    private String imageUrl;
+
+    private boolean opcodes;
+    private boolean compress;
+    private long helloAt = -1;
+    private long requestModsAt = -1;
+    private long requestHwidAt = -1;
+    private int started;
+    private Vote active;
+    private long nextVoteAt;
+    private long nextStatsAt;
+    private boolean done;
+
+    private final long[] sent = new long[TYPES.length];
+    private final long[] sentBytes = new long[TYPES.length];
+    private final long[] received = new long[TYPES.length];
+    private final Histogram modListNanos = new Histogram();
+    private final Histogram modHashesNanos = new Histogram();
+    private final Histogram hwidNanos = new Histogram();
+    private final Histogram voteResponseNanos = new Histogram();
+    private long decodeErrors;
+    private long staleResponses;
+    private long statsSkipped;
+
+    public StandinServer(Profile profile, Consumer<ByteBuf> toClient) {
+        this(profile, toClient, null);
+    }
+
+    /**
+     * @param images serves the backgrounds of a profile with
+     *               {@link Profile#urlImages()}; may be {@code null} otherwise
+     */
+    public StandinServer(Profile profile, Consumer<ByteBuf> toClient, StandinImageServer images) {
+        if (profile.urlImages() && profile.imageBytes() > 0 && images == null) {
+            throw new IllegalArgumentException("URL backgrounds need an image server");
+        }
+        this.profile = profile;
+        this.toClient = toClient;
+        this.random = new Random(profile.seed());
+        this.statsPeriodNanos = 1_000_000_000L / Math.max(1, profile.statsPerSecond());
+        this.images = images;
+    }
+
+    /** Handles one encoded message from the client. */
+    public synchronized void fromClient(ByteBuf buf, long nowNanos) {
+        Message message;
+        try {
+            message = MessageCodec.decode(buf);
+        } catch (ProtocolException e) {
+            decodeErrors++;
+            return;
+        }
+        received[message.type().ordinal()]++;
+        switch (message) {
+            case ClientHello hello -> onHello(hello, nowNanos);
+            case ModList ignored -> {
+                if (requestModsAt >= 0) modListNanos.record(nowNanos - requestModsAt);
+            }
+            case ModHashes ignored -> {
+                if (requestModsAt >= 0) modHashesNanos.record(nowNanos - requestModsAt);
+            }
+            case Hwid ignored -> {
+                // a follow-up to a provisional HWID is not an answer
+                if (requestHwidAt >= 0) hwidNanos.record(nowNanos - requestHwidAt);
+                requestHwidAt = -1;
+            }
+            case VoteResponse response -> {
+                if (active != null && active.id.equals(response.voteId())) {
+                    voteResponseNanos.record(nowNanos - active.startedAt);
+                } else {
+                    staleResponses++;
+                }
+            }
+            case RequestVoteStats request -> {
+                if (active != null && active.id.equals(request.voteId())) {
+                    sendSnapshot(active);
+                }
+            }
+            case RequestImageChunk request -> onChunkRequest(request);
+            case StatsSubscription subscription -> {
+                if (active != null && active.id.equals(subscription.voteId())) {
+                    active.throttle.subscribe(subscription, nowNanos);
+                    if (active.throttle.flushDue(nowNanos)) sendSnapshot(active);
+                }
+            }
+            // answered at once, so the client sees no server time
+            case Ping ping -> send(new Pong(ping.sentNanos(), 0));
+            default -> {
+                // nothing else is expected from a client
+            }
+        }
+    }
+
+    /** Advances the vote script to {@code nowNanos}. */
+    public synchronized void tick(long nowNanos) {
+        if (done || helloAt < 0) return;
+        if (active == null) {
+            if (started == profile.votes()) {
+                done = true;
+            } else if (nowNanos >= nextVoteAt) {
+                startVote(nowNanos);
+            }
+            return;
+        }
+        if (profile.statsPerSecond() > 0) {
+            // a slow caller catches up at most one second of updates
+            if (nowNanos - nextStatsAt > 1_000_000_000L) nextStatsAt = nowNanos;
+            while (nowNanos >= nextStatsAt && nextStatsAt < active.endsAt) {
+                sendStats(nextStatsAt);
+                nextStatsAt += statsPeriodNanos;
+            }
+        }
+        // the last update held back is sent even if no other one follows
+        if (active.throttle.flushDue(nowNanos)) sendSnapshot(active);
+        if (nowNanos >= active.endsAt) {
+            send(new VoteEnd(active.id, "Stand-in vote finished", active.counts.clone()));
+            statsSkipped += active.throttle.skipped();
+            active = null;
+            nextVoteAt = nowNanos + VOTE_GAP_NANOS;
+        }
+    }
+
+    /** Whether all votes of the profile have ended. */
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    public Profile profile() {
+        return profile;
+    }
+
+    /** Message counts and latencies so far; times are in nanoseconds. */
+    public synchronized String reportJson() {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("{\n  \"profile\": \"").append(profile).append('"')
+          .append(",\n  \"votesStarted\": ").append(started)
+          .append(",\n  \"done\": ").append(done)
+          .append(",\n  \"decodeErrors\": ").append(decodeErrors)
+          .append(",\n  \"staleResponses\": ").append(staleResponses)
+          .append(",\n  \"statsSkipped\": ").append(statsSkipped + (active != null ? active.throttle.skipped() : 0))
+          .append(",\n  \"modListNanos\": ");
+        modListNanos.appendJson(sb);
+        sb.append(",\n  \"modHashesNanos\": ");
+        modHashesNanos.appendJson(sb);
+        if (images != null) sb.append(",\n  \"imageRequests\": ").append(images.statsJson());
+        sb.append(",\n  \"hwidNanos\": ");
+        hwidNanos.appendJson(sb);
+        sb.append(",\n  \"voteResponseNanos\": ");
+        voteResponseNanos.appendJson(sb);
+        sb.append(",\n  \"subchannels\": {");
+        boolean first = true;
+        for (MessageType type : TYPES) {
+            int i = type.ordinal();
+            if (sent[i] == 0 && received[i] == 0) continue;
+            sb.append(first ? "\n" : ",\n").append("    \"").append(type.wireName()).append("\": {")
+              .append("\"sent\":").append(sent[i])
+              .append(",\"sentBytes\":").append(sentBytes[i])
+              .append(",\"received\":").append(received[i])
+              .append('}');
+            first = false;
+        }
+        sb.append(first ? "}\n}\n" : "\n  }\n}\n");
+        return sb.toString();
+    }
+
+    private void onHello(ClientHello hello, long nowNanos) {
+        helloAt = nowNanos;
+        int version = Math.min(hello.protocolVersion(), MessageCodec.PROTOCOL_VERSION);
+        boolean v2 = version >= MessageCodec.OPCODE_VERSION;
+        int capabilities = v2 ? hello.capabilities() & MessageCodec.CAPABILITIES : 0;
+        // the client switches framing only after reading ServerHello, so it
+        // goes out legacy-framed and uncompressed, even on a second hello
+        opcodes = false;
+        compress = false;
+        send(new ServerHello(version, capabilities));
+        opcodes = v2;
+        compress = (capabilities & MessageCodec.CAP_DEFLATE) != 0;
+        // the stand-in never knows the inventory digest
+        requestModsAt = nowNanos;
+        send(RequestMods.INSTANCE);
+        requestHwidAt = nowNanos;
+        send(RequestHwid.INSTANCE);
+        nextVoteAt = nowNanos + VOTE_GAP_NANOS;
+    }
+
+    private void startVote(long nowNanos) {
+        Vote vote = new Vote("standin-" + (started + 1), profile.options(), nowNanos,
+            nowNanos + profile.voteSeconds() * 1_000_000_000L);
+        started++;
+        List<String> options = new ArrayList<>(profile.options());
+        for (int i = 0; i < profile.options(); i++) options.add("Option " + (i + 1));
+        boolean byUrl = profile.urlImages() && profile.imageBytes() > 0;
+        if (byUrl && imageUrl == null) {
+            imageUrl = images.publish("standin-" + profile.seed(), noisePng(profile.imageBytes(), random));
+        }
+        send(new StartVote(vote.id, "Stand-in vote " + started + "/" + profile.votes(),
+            "Generated by the SSaVS stand-in server (" + profile + ")",
+            options, true, byUrl ? imageUrl : "", profile.voteSeconds()));
+        // deltas only apply on top of a sequenced snapshot
+        if (profile.deltas()) send(new VoteStats(vote.id, vote.counts.clone(), vote.seq));
+        if (profile.imageBytes() > 0 && !byUrl) {
+            vote.image = noisePng(profile.imageBytes(), random);
+            vote.hash = ContentHash.of(vote.image);
+            send(new VoteBackground(vote.id, vote.hash, vote.image.length));
+        }
+        active = vote;
+        nextStatsAt = nowNanos + statsPeriodNanos;
+    }
+
+    private void sendStats(long atNanos) {
+        Vote vote = active;
+        int changed = 1 + random.nextInt(Math.min(MAX_CHANGED, vote.counts.length));
+        int[] indices = new int[changed];
+        for (int i = 0; i < changed; i++) indices[i] = random.nextInt(vote.counts.length);
+        Arrays.sort(indices);
+        int n = 0;
+        for (int i = 0; i < changed; i++) {
+            if (n == 0 || indices[n - 1] != indices[i]) indices[n++] = indices[i];
+        }
+        indices = Arrays.copyOf(indices, n);
+        int[] increments = new int[n];
+        for (int i = 0; i < n; i++) {
+            increments[i] = 1 + random.nextInt(3);
+            vote.counts[indices[i]] += increments[i];
+        }
+        vote.seq++;
+        StatsThrottle.Decision decision = vote.throttle.onUpdate(atNanos);
+        if (decision == StatsThrottle.Decision.SKIP) return;
+        if (profile.deltas() && vote.seq % SNAPSHOT_EVERY != 0 && decision == StatsThrottle.Decision.SEND) {
+            send(new VoteStatsDelta(vote.id, vote.seq, indices, increments));
+        } else {
+            sendSnapshot(vote);
+        }
+    }
+
+    private void sendSnapshot(Vote vote) {
+        send(new VoteStats(vote.id, vote.counts.clone(), vote.seq));
+    }
+
+    private void onChunkRequest(RequestImageChunk request) {
+        Vote vote = active;
+        if (vote == null || vote.hash == null || !vote.hash.equals(request.hash())) return;
+        int offset = request.offset();
+        if (offset < 0 || offset >= vote.image.length) return;
+        int length = Math.min(Math.min(request.length(), ImageChunk.MAX_LENGTH), vote.image.length - offset);
+        send(new ImageChunk(vote.hash, offset, Arrays.copyOfRange(vote.image, offset, offset + length)));
+    }
+
+    private void send(Message message) {
+        ByteBuf buf = Unpooled.buffer();
+        MessageCodec.encode(buf, message, opcodes, compress);
+        int i = message.type().ordinal();
+        sent[i]++;
+        sentBytes[i] += buf.readableBytes();
+        toClient.accept(buf);
+    }
+
+    /**
+     * A PNG of random pixels, which barely compresses, sized to roughly
+     * {@code approxBytes}.
+     */
+    static byte[] noisePng(int approxBytes, Random random) {
+        int side = Math.max(1, (int) Math.sqrt(Math.min(approxBytes, VoteBackground.MAX_SIZE * 0.9) / 3));
+        BufferedImage img = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) img.setRGB(x, y, random.nextInt(0x1000000));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(side * side * 3 + 1024);
+        try {
+            ImageIO.write(img, "png", out);
+        } catch (IOException e) {
+            throw new IllegalStateException("PNG encoding failed", e);
+        }
+        return out.toByteArray();
+    }
+}
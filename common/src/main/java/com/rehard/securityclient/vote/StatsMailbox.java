@@ -0,0 +1,143 @@
+package com.rehard.securityclient.vote;
+
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.VoteEnd;
+import com.rehard.securityclient.protocol.VoteStats;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Latest-value slot per vote for {@link VoteStats} snapshots and
+ * {@link VoteEnd}.  The network thread publishes each message as soon as it
+ * is decoded; the client thread drains the slots once per tick, so a burst
+ * of snapshots costs one apply per vote instead of one per packet.
+ *
+ * <p>A snapshot never replaces one with a higher sequence number, and a
+ * VoteEnd is final: later snapshots of that vote are dropped until the
+ * end has been drained.  Once drained, the vote is remembered as ended and
+ * snapshots that trail its end are dropped instead of opening a new slot,
+ * until a StartVote with the same id {@linkplain #reopen reopens} it.
+ * Publishing is a single CAS on the vote's slot.
+ */
+public final class StatsMailbox {
+    public static final StatsMailbox INSTANCE = new StatsMailbox();
+
+    /**
+     * A message waiting to be applied.
+     *
+     * @param receivedNanos arrival of the oldest message this one superseded,
+     *                      so effect latency still counts from the first packet
+     */
+    public record Pending(Message message, long receivedNanos) {}
+
+    /** Ended votes remembered; older ones may open a slot again. */
+    private static final int ENDED_CAPACITY = 64;
+
+    private final Map<String, AtomicReference<Pending>> slots = new ConcurrentHashMap<>();
+    private final Set<String> ended = ConcurrentHashMap.newKeySet();
+    private final Queue<String> endedOrder = new ConcurrentLinkedQueue<>();
+
+    /** Whether {@code message} goes through the mailbox rather than direct dispatch. */
+    public static boolean coalesces(Message message) {
+        return message instanceof VoteStats || message instanceof VoteEnd;
+    }
+
+    /**
+     * Stores a {@link VoteStats} or {@link VoteEnd} as the latest for its vote.
+     *
+     * A message for a vote whose end was already drained is dropped.
+     *
+     * @return whether it was coalesced with a pending message, i.e. either
+     *         one of the two will never be applied on its own
+     */
+    public boolean publish(Message message, long receivedNanos) {
+        String voteId = voteId(message);
+        if (ended.contains(voteId)) return false;
+        AtomicReference<Pending> slot = slots.get(voteId);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(voteId, k -> new AtomicReference<>());
+            // the end may have been drained since the check above
+            if (ended.contains(voteId)) {
+                slots.remove(voteId, slot);
+                return false;
+            }
+        }
+        while (true) {
+            Pending current = slot.get();
+            if (current == null) {
+                if (slot.compareAndSet(null, new Pending(message, receivedNanos))) return false;
+            } else if (!supersedes(message, current.message())) {
+                return true;
+            } else if (slot.compareAndSet(current, new Pending(message, current.receivedNanos()))) {
+                return true;
+            }
+        }
+    }
+
+    /** Removes and returns the pending message of one vote, or {@code null}. */
+    public Pending take(String voteId) {
+        AtomicReference<Pending> slot = slots.get(voteId);
+        return slot == null ? null : take(voteId, slot);
+    }
+
+    /** Hands every pending message to {@code sink}, at most one per vote. */
+    public void drain(Consumer<Pending> sink) {
+        drainExcept(null, sink);
+    }
+
+    /**
+     * Like {@link #drain}, but leaves the slot of {@code voteId} alone, so a
+     * vote about to start can take its own messages once its screen exists.
+     */
+    public void drainExcept(String voteId, Consumer<Pending> sink) {
+        for (Map.Entry<String, AtomicReference<Pending>> e : slots.entrySet()) {
+            if (e.getKey().equals(voteId)) continue;
+            Pending pending = take(e.getKey(), e.getValue());
+            if (pending != null) sink.accept(pending);
+        }
+    }
+
+    /** Accepts messages for {@code voteId} again; called when a vote of that id starts. */
+    public void reopen(String voteId) {
+        ended.remove(voteId);
+    }
+
+    public void clear() {
+        slots.clear();
+        ended.clear();
+        endedOrder.clear();
+    }
+
+    private Pending take(String voteId, AtomicReference<Pending> slot) {
+        Pending pending = slot.getAndSet(null);
+        // an ended vote gets no more updates; forget its slot
+        if (pending != null && pending.message() instanceof VoteEnd) {
+            if (ended.add(voteId)) {
+                endedOrder.add(voteId);
+                while (endedOrder.size() > ENDED_CAPACITY) ended.remove(endedOrder.poll());
+            }
+            slots.remove(voteId, slot);
+        }
+        return pending;
+    }
+
+    private static boolean supersedes(Message next, Message current) {
+        if (current instanceof VoteEnd) return false;
+        if (next instanceof VoteEnd) return true;
+        int nextSeq = ((VoteStats) next).seq();
+        int currentSeq = ((VoteStats) current).seq();
+        return nextSeq == VoteStats.NO_SEQ || currentSeq == VoteStats.NO_SEQ || nextSeq >= currentSeq;
+    }
+
+    private static String voteId(Message message) {
+        if (message instanceof VoteStats s) return s.voteId();
+        if (message instanceof VoteEnd e) return e.voteId();
+        throw new IllegalArgumentException("Not a vote snapshot: " + message.type().wireName());
+    }
+}
@@ -0,0 +1,80 @@
+package com.rehard.securityclient.vote;
+
+import com.rehard.securityclient.protocol.StatsSubscription;
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+
+/**
+ * Server-side pacing of one vote's stats for one player, following the
+ * player's latest {@link StatsSubscription}.  The counters keep changing
+ * whatever the pace; this only decides which changes are sent.
+ *
+ * <p>A {@link VoteStatsDelta} only applies on top of the previous sequence
+ * number, so once an update has been held back the next one sent must be a
+ * full {@link VoteStats} snapshot.  Until the first subscription every
+ * update is sent, which is what clients without the capability expect.
+ * An update held back while no later one follows is not lost: the caller
+ * polls {@link #flushDue} and sends the trailing snapshot once the pace
+ * allows, so the player ends up with the current counts.
+ * Not thread-safe; the caller passes {@link System#nanoTime()}.
+ */
+public final class StatsThrottle {
+    /** What to do with an update. */
+    public enum Decision {
+        /** Send as usual, as a delta or a snapshot. */
+        SEND,
+        /** Send a full snapshot, since earlier updates were held back. */
+        SEND_SNAPSHOT,
+        /** Hold back. */
+        SKIP
+    }
+
+    private boolean watching = true;
+    /** 0 until the first subscription: no pacing. */
+    private long periodNanos;
+    private long nextAllowedAt;
+    private boolean behind;
+    private long skipped;
+
+    /** Applies a subscription received from the player. */
+    public void subscribe(StatsSubscription subscription, long nowNanos) {
+        boolean first = periodNanos == 0;
+        boolean resumed = !watching && subscription.watching();
+        watching = subscription.watching();
+        periodNanos = 1_000_000_000L / subscription.maxPerSecond();
+        // a faster rate or a resumed screen takes effect at once
+        if (first || resumed || nextAllowedAt - (nowNanos + periodNanos) > 0) nextAllowedAt = nowNanos;
+    }
+
+    /** Decides the fate of an update that happened at {@code nowNanos}. */
+    public Decision onUpdate(long nowNanos) {
+        if (!watching || (periodNanos != 0 && nowNanos - nextAllowedAt < 0)) {
+            behind = true;
+            skipped++;
+            return Decision.SKIP;
+        }
+        nextAllowedAt = nowNanos + periodNanos;
+        if (behind) {
+            behind = false;
+            return Decision.SEND_SNAPSHOT;
+        }
+        return Decision.SEND;
+    }
+
+    /**
+     * Whether a snapshot is owed for held-back updates and may go out at
+     * {@code nowNanos}.  Returns {@code true} once per flush; the caller
+     * must then send a full {@link VoteStats}.
+     */
+    public boolean flushDue(long nowNanos) {
+        if (!behind || !watching || (periodNanos != 0 && nowNanos - nextAllowedAt < 0)) return false;
+        behind = false;
+        nextAllowedAt = nowNanos + periodNanos;
+        return true;
+    }
+
+    /** Number of updates held back so far. */
+    public long skipped() {
+        return skipped;
+    }
+}
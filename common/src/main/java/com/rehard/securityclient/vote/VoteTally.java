@@ -0,0 +1,71 @@
+package com.rehard.securityclient.vote;
+
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+
+/**
+ * Per-option counters of one vote, kept in sync from full
+ * {@link VoteStats} snapshots and in-place {@link VoteStatsDelta} patches.
+ *
+ * <p>Deltas are only applied in sequence.  On a gap the tally stops
+ * accepting deltas until a snapshot with a sequence number arrives, and
+ * {@link #applyDelta} reports {@link Result#RESYNC} exactly once so the
+ * caller can ask the server for that snapshot.  Deltas of another vote,
+ * or patching an option the vote does not have, are never applied.
+ */
+public final class VoteTally {
+    public enum Result { APPLIED, IGNORED, RESYNC }
+
+    private final String voteId;
+    private final int[] counts;
+    private int seq = VoteStats.NO_SEQ;
+    private boolean awaitingSnapshot;
+
+    public VoteTally(String voteId, int options) {
+        this.voteId = voteId;
+        this.counts = new int[options];
+    }
+
+    public synchronized Result applySnapshot(int snapshotSeq, int[] snapshot) {
+        if (snapshot.length != counts.length) return Result.IGNORED;
+        if (snapshotSeq != VoteStats.NO_SEQ && seq != VoteStats.NO_SEQ && snapshotSeq < seq) {
+            return Result.IGNORED;
+        }
+        System.arraycopy(snapshot, 0, counts, 0, counts.length);
+        seq = snapshotSeq;
+        awaitingSnapshot = false;
+        return Result.APPLIED;
+    }
+
+    public synchronized Result applyDelta(VoteStatsDelta delta) {
+        if (!voteId.equals(delta.voteId()) || awaitingSnapshot) return Result.IGNORED;
+        if (seq != VoteStats.NO_SEQ && delta.seq() <= seq) return Result.IGNORED;
+        int[] indices = delta.indices();
+        if (seq == VoteStats.NO_SEQ || delta.seq() != seq + 1
+                || (indices.length > 0 && indices[indices.length - 1] >= counts.length)) {
+            awaitingSnapshot = true;
+            return Result.RESYNC;
+        }
+        int[] increments = delta.increments();
+        for (int i = 0; i < indices.length; i++) counts[indices[i]] += increments[i];
+        seq = delta.seq();
+        return Result.APPLIED;
+    }
+
+    /** Copies the current counters into {@code dst}, which must be large enough. */
+    public synchronized void copyTo(int[] dst) {
+        System.arraycopy(counts, 0, dst, 0, counts.length);
+    }
+
+    public String voteId() {
+        return voteId;
+    }
+
+    public int size() {
+        return counts.length;
+    }
+
+    public synchronized int seq() {
+        return seq;
+    }
+}
@@ -0,0 +1,58 @@
+package com.rehard.securityclient.hwid;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProvisionalHwidTest {
+    private final CompletableFuture<String> full = new CompletableFuture<>();
+    private final ProvisionalHwid hwid = new ProvisionalHwid(full, () -> "fallback");
+    private final List<String> followUps = new ArrayList<>();
+
+    @Test
+    void readyIdentifierNeedsNoFollowUp() {
+        full.complete("full");
+        assertEquals("full", hwid.get(0, followUps::add));
+        assertTrue(hwid.isReady());
+        assertTrue(followUps.isEmpty());
+    }
+
+    @Test
+    void repeatedRequestsGetOneFollowUp() {
+        // ClientHello, then RequestHwid, then another RequestHwid, all before the result
+        assertEquals("fallback", hwid.get(0, followUps::add));
+        assertEquals("fallback", hwid.get(0, followUps::add));
+        assertEquals("fallback", hwid.get(0, followUps::add));
+        assertFalse(hwid.isReady());
+        full.complete("full");
+        assertEquals(List.of("full"), followUps);
+        assertEquals("full", hwid.get(0, followUps::add));
+        assertEquals(List.of("full"), followUps);
+    }
+
+    @Test
+    void resetArmsTheFollowUpForTheNextConnection() {
+        List<String> first = new ArrayList<>();
+        hwid.get(0, first::add);
+        hwid.reset();
+        hwid.get(0, followUps::add);
+        hwid.get(0, followUps::add);
+        full.complete("full");
+        assertEquals(List.of("full"), first);
+        assertEquals(List.of("full"), followUps);
+    }
+
+    @Test
+    void failedComputationKeepsTheFallback() {
+        full.completeExceptionally(new IllegalStateException("no interfaces"));
+        assertEquals("fallback", hwid.get(0, followUps::add));
+        assertFalse(hwid.isReady());
+        assertTrue(followUps.isEmpty());
+    }
+}
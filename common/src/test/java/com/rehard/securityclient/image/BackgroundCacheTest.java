@@ -0,0 +1,109 @@
+package com.rehard.securityclient.image;
+
+import com.rehard.securityclient.protocol.ContentHash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackgroundCacheTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesAndReturnsByHash() throws IOException {
+        BackgroundCache cache = new BackgroundCache(dir, 1000);
+        byte[] data = image(1, 100);
+        ContentHash hash = ContentHash.of(data);
+        assertTrue(cache.put(hash, data));
+        assertTrue(cache.contains(hash));
+        assertArrayEquals(data, cache.get(hash));
+        assertEquals(100, cache.totalBytes());
+        assertFalse(cache.put(hash, image(2, 100)), "bytes not matching the hash");
+        assertFalse(cache.put(ContentHash.of(image(3, 2000)), image(3, 2000)), "over budget alone");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        BackgroundCache cache = new BackgroundCache(dir, 250);
+        byte[] a = image(1, 100), b = image(2, 100), c = image(3, 100);
+        cache.put(ContentHash.of(a), a);
+        cache.put(ContentHash.of(b), b);
+        cache.get(ContentHash.of(a));
+        cache.put(ContentHash.of(c), c);
+        assertTrue(cache.contains(ContentHash.of(a)));
+        assertFalse(cache.contains(ContentHash.of(b)));
+        assertFalse(Files.exists(dir.resolve(ContentHash.of(b).hex() + ".img")));
+        assertEquals(200, cache.totalBytes());
+    }
+
+    @Test
+    void damagedFileIsDropped() throws IOException {
+        BackgroundCache cache = new BackgroundCache(dir, 1000);
+        byte[] data = image(1, 100);
+        ContentHash hash = ContentHash.of(data);
+        cache.put(hash, data);
+        Files.write(dir.resolve(hash.hex() + ".img"), image(2, 100));
+        assertNull(cache.get(hash));
+        assertFalse(cache.contains(hash));
+        assertEquals(0, cache.totalBytes());
+    }
+
+    @Test
+    void reindexesOnRestart() throws IOException {
+        byte[] data = image(1, 100);
+        ContentHash hash = ContentHash.of(data);
+        new BackgroundCache(dir, 1000).put(hash, data);
+        BackgroundCache reopened = new BackgroundCache(dir, 1000);
+        assertArrayEquals(data, reopened.get(hash));
+        assertEquals(100, reopened.totalBytes());
+    }
+
+    @Test
+    void concurrentStoresKeepTheAccountingRight() throws Exception {
+        BackgroundCache cache = new BackgroundCache(dir, 1L << 20);
+        List<byte[]> images = new ArrayList<>();
+        for (int i = 0; i < 16; i++) images.add(image(i, 10_000));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Boolean>> puts = new ArrayList<>();
+            // every image twice, so the same hash is stored concurrently
+            for (int round = 0; round < 2; round++) {
+                for (byte[] data : images) {
+                    puts.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return cache.put(ContentHash.of(data), data);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }, pool));
+                }
+            }
+            for (CompletableFuture<Boolean> put : puts) assertTrue(put.join());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(16 * 10_000L, cache.totalBytes());
+        for (byte[] data : images) assertArrayEquals(data, cache.get(ContentHash.of(data)));
+    }
+
+    private static byte[] image(int seed, int size) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
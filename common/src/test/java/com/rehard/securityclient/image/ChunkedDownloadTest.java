@@ -0,0 +1,108 @@
+package com.rehard.securityclient.image;
+
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.ImageChunk;
+import com.rehard.securityclient.protocol.RequestImageChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedDownloadTest {
+    private static final long T = ChunkedDownload.TIMEOUT_NANOS;
+
+    private final byte[] image = image(ChunkedDownload.CHUNK_SIZE * 6 + 100);
+    private final ContentHash hash = ContentHash.of(image);
+
+    @Test
+    void completesWithinTheWindow() {
+        ChunkedDownload download = new ChunkedDownload("vote-1", hash, image.length);
+        List<RequestImageChunk> window = download.start(0);
+        assertEquals(ChunkedDownload.WINDOW, window.size());
+        int requested = window.size();
+        for (int i = 0; i < 7; i++) {
+            RequestImageChunk next = download.accept(chunk(i), 1);
+            if (next != null) {
+                assertEquals((long) requested * ChunkedDownload.CHUNK_SIZE, next.offset());
+                requested++;
+            }
+        }
+        assertEquals(7, requested);
+        assertTrue(download.isComplete());
+        assertArrayEquals(image, download.data());
+    }
+
+    @Test
+    void ignoresDuplicateAndUnsolicitedChunks() {
+        ChunkedDownload download = new ChunkedDownload("vote-1", hash, image.length);
+        download.start(0);
+        assertTrue(download.accept(chunk(0), 0) != null);
+        assertNull(download.accept(chunk(0), 0));
+        assertNull(download.accept(chunk(6), 0));
+        assertFalse(download.isComplete());
+    }
+
+    @Test
+    void requestsUnansweredChunksAgain() {
+        ChunkedDownload download = new ChunkedDownload("vote-1", hash, image.length);
+        download.start(0);
+        download.accept(chunk(1), T / 2);
+        assertTrue(download.expired(T - 1).isEmpty());
+
+        List<RequestImageChunk> again = download.expired(T);
+        assertEquals(List.of(0, 2, 3), offsets(again));
+        // chunk 4 was requested later and is not due yet
+        assertTrue(download.expired(T + 1).isEmpty());
+        assertEquals(List.of(4), offsets(download.expired(T / 2 + T)));
+        assertFalse(download.isFailed());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        ChunkedDownload download = new ChunkedDownload("vote-1", hash, image.length);
+        download.start(0);
+        long now = 0;
+        for (int attempt = 1; attempt < ChunkedDownload.MAX_ATTEMPTS; attempt++) {
+            now += T;
+            assertEquals(ChunkedDownload.WINDOW, download.expired(now).size());
+        }
+        assertTrue(download.expired(now + T).isEmpty());
+        assertTrue(download.isFailed());
+        assertNull(download.accept(chunk(0), now + T));
+        assertTrue(download.expired(now + 2 * T).isEmpty());
+    }
+
+    @Test
+    void lateChunkStillCounts() {
+        ChunkedDownload download = new ChunkedDownload("vote-1", hash, image.length);
+        download.start(0);
+        download.expired(T);
+        // the original answer arrives after the re-request went out
+        assertTrue(download.accept(chunk(0), T + 1) != null);
+        assertNull(download.accept(chunk(0), T + 2));
+        assertEquals(List.of(), offsets(download.expired(T + 2)));
+    }
+
+    private ImageChunk chunk(int index) {
+        int offset = index * ChunkedDownload.CHUNK_SIZE;
+        int end = Math.min(offset + ChunkedDownload.CHUNK_SIZE, image.length);
+        return new ImageChunk(hash, offset, Arrays.copyOfRange(image, offset, end));
+    }
+
+    private static List<Integer> offsets(List<RequestImageChunk> requests) {
+        return requests.stream().map(r -> r.offset() / ChunkedDownload.CHUNK_SIZE).toList();
+    }
+
+    private static byte[] image(int size) {
+        byte[] data = new byte[size];
+        new Random(7).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,115 @@
+package com.rehard.securityclient.image;
+
+import com.rehard.securityclient.standin.StandinImageServer;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlBackgroundFetcherTest {
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        if (server != null) server.stop(0);
+    }
+
+    @Test
+    void onlyPublicAddressesArePublic() throws IOException {
+        for (String ip : new String[] {"127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+                                       "0.0.0.0", "100.64.0.1", "224.0.0.1", "::1", "fe80::1", "fd00::1"}) {
+            assertFalse(UrlBackgroundFetcher.isPublic(InetAddress.getByName(ip)), ip);
+        }
+        for (String ip : new String[] {"93.184.216.34", "8.8.8.8", "2606:4700::1111"}) {
+            assertTrue(UrlBackgroundFetcher.isPublic(InetAddress.getByName(ip)), ip);
+        }
+    }
+
+    @Test
+    void loopbackNeedsTheStandin() throws IOException {
+        try (StandinImageServer images = new StandinImageServer();
+             UrlBackgroundFetcher fetcher = fetcher(Duration.ofSeconds(5))) {
+            byte[] png = {1, 2, 3, 4};
+            String url = images.publish("a", png);
+            assertFailsWith(IOException.class, fetcher, url);
+
+            fetcher.setAllowLoopback(true);
+            assertArrayEquals(png, fetcher.fetch(url).join().data());
+        }
+    }
+
+    @Test
+    void stalledBodyTimesOut() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, 1000);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(new byte[10]);
+                out.flush();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignore) {
+                // test over
+            }
+        });
+        server.start();
+        try (UrlBackgroundFetcher fetcher = fetcher(Duration.ofMillis(300))) {
+            fetcher.setAllowLoopback(true);
+            long start = System.nanoTime();
+            assertFailsWith(HttpTimeoutException.class, fetcher,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/slow.png");
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        }
+    }
+
+    @Test
+    void redirectToLoopbackIsRejected() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().set("Location", "http://10.0.0.1/internal.png");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.start();
+        try (UrlBackgroundFetcher fetcher = fetcher(Duration.ofSeconds(5))) {
+            fetcher.setAllowLoopback(true);
+            assertFailsWith(IOException.class, fetcher,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/moved.png");
+        }
+    }
+
+    private UrlBackgroundFetcher fetcher(Duration timeout) throws IOException {
+        return new UrlBackgroundFetcher(new BackgroundCache(dir, 1 << 20), dir, 1 << 16, timeout);
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> type, UrlBackgroundFetcher fetcher, String url) {
+        CompletionException e = assertThrows(CompletionException.class, () -> fetcher.fetch(url).join());
+        Throwable cause = e.getCause();
+        // load() wraps checked exceptions for the future
+        while (!type.isInstance(cause) && cause.getCause() != null) cause = cause.getCause();
+        assertInstanceOf(type, cause);
+    }
+}
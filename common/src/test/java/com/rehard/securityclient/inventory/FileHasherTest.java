@@ -0,0 +1,70 @@
+package com.rehard.securityclient.inventory;
+
+import com.rehard.securityclient.protocol.ContentHash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FileHasherTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readHashMatchesContentHash() throws IOException {
+        // larger than the read buffer, not a multiple of it
+        byte[] data = bytes(1, (1 << 20) * 3 + 17);
+        Path file = Files.write(dir.resolve("mod.jar"), data);
+        assertEquals(ContentHash.of(data), FileHasher.hashFile(file));
+        assertEquals(ContentHash.of(new byte[0]), FileHasher.hashFile(Files.write(dir.resolve("empty"), new byte[0])));
+    }
+
+    @Test
+    void hashedFileCanBeReplacedRightAway() throws IOException {
+        Path file = Files.write(dir.resolve("pack.zip"), bytes(2, 4096));
+        FileHasher.hashFile(file);
+        Files.delete(file);
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void concurrentRequestsAgreeAndPersist() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) files.add(Files.write(dir.resolve("m" + i + ".jar"), bytes(i, 200_000)));
+        // every file listed twice, as warm-up and handshake overlap
+        List<Path> twice = new ArrayList<>(files);
+        twice.addAll(files);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            FileHasher hasher = new FileHasher(dir.resolve("cache").resolve("hashes.txt"), pool);
+            Map<Path, ContentHash> first = hasher.hashAll(twice).join();
+            Map<Path, ContentHash> second = hasher.hashAll(files).join();
+            assertEquals(4, first.size());
+            for (Path f : files) {
+                assertEquals(ContentHash.of(Files.readAllBytes(f)), first.get(f));
+                assertEquals(first.get(f), second.get(f));
+            }
+            FileHasher reloaded = new FileHasher(dir.resolve("cache").resolve("hashes.txt"), pool);
+            assertEquals(first.get(files.get(0)), reloaded.hash(files.get(0)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static byte[] bytes(int seed, int size) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,174 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class MessageCodecTest {
+    private static final ContentHash HASH = ContentHash.of(new byte[] {1, 2, 3});
+
+    /** Bytes of the optional trailing field; a message cut just before it is its legacy form. */
+    private static final Map<MessageType, Integer> OPTIONAL_TAIL = Map.of(
+        MessageType.CLIENT_HELLO, Integer.BYTES,
+        MessageType.SERVER_HELLO, Integer.BYTES,
+        MessageType.VOTE_STATS, Integer.BYTES,
+        MessageType.PONG, 2 * Long.BYTES);
+
+    /** One message of every type, with every optional field present. */
+    static List<Message> samples() {
+        List<Message> m = new ArrayList<>();
+        m.add(RequestMods.INSTANCE);
+        m.add(RequestHwid.INSTANCE);
+        m.add(new StartVote("vote-1", "Заголовок", "Description\0", List.of("Да", "Нет", "😀"), false,
+            "https://example.com/bg.png", 60));
+        m.add(new VoteStats("vote-1", new int[] {3, 0, 7}, 12));
+        m.add(new VoteStatsDelta("vote-1", 13, new int[] {0, 2, 300}, new int[] {1, -1, 64}));
+        m.add(new VoteEnd("vote-1", "Готово", new int[] {4, 1, 7}));
+        m.add(new VoteBackground("vote-1", HASH, 1234));
+        m.add(new ImageChunk(HASH, 32768, new byte[] {9, 8, 7, 6}));
+        m.add(new Pong(123456789L, 5000L));
+        m.add(new ServerHello(2, MessageCodec.CAPABILITIES));
+        m.add(new ClientHello(HASH, "hwid", 2, MessageCodec.CAPABILITIES));
+        m.add(new ModList(List.of("fabricloader", "ssavs"), List.of("vanilla")));
+        m.add(new Hwid("abcdef"));
+        m.add(new VoteResponse("vote-1", 2));
+        m.add(new RequestVoteStats("vote-1"));
+        m.add(new RequestImageChunk(HASH, 0, 4096));
+        m.add(new ModHashes(List.of(new ModHashes.Entry("ssavs", HASH)), List.of(new ModHashes.Entry("pack", HASH))));
+        m.add(new Ping(987654321L));
+        m.add(new StatsSubscription("vote-1", true, 20));
+        return m;
+    }
+
+    @Test
+    void samplesCoverEveryType() {
+        Set<MessageType> covered = EnumSet.noneOf(MessageType.class);
+        for (Message m : samples()) covered.add(m.type());
+        assertEquals(EnumSet.allOf(MessageType.class), covered);
+    }
+
+    @Test
+    void opcodesAreUniqueAndResolve() {
+        Map<Integer, MessageType> seen = new HashMap<>();
+        for (MessageType type : MessageType.values()) {
+            assertTrue(type.opcode() > 0 && type.opcode() <= MessageType.MAX_OPCODE, type.name());
+            assertEquals(null, seen.put(type.opcode(), type), "duplicate opcode " + type.opcode());
+            assertEquals(type, MessageType.byOpcode(type.opcode()));
+        }
+    }
+
+    @Test
+    void legacyFramingRoundTrips() {
+        for (Message m : samples()) {
+            byte[] bytes = encode(m, false);
+            assertEquals(0, bytes[0], m.type() + " legacy header starts with a zero byte");
+            assertEquals(m.type().wireName(), ModifiedUtf8.read(Unpooled.wrappedBuffer(bytes)));
+            assertRoundTrip(m, bytes, false);
+        }
+    }
+
+    @Test
+    void opcodeFramingRoundTrips() {
+        for (Message m : samples()) {
+            byte[] bytes = encode(m, true);
+            assertEquals(m.type().opcode(), bytes[0], m.type() + " opcode");
+            assertRoundTrip(m, bytes, true);
+        }
+    }
+
+    @Test
+    void bothFramingsCarryTheSameBody() {
+        for (Message m : samples()) {
+            byte[] legacy = encode(m, false);
+            byte[] opcode = encode(m, true);
+            int header = 2 + m.type().wireName().length();
+            assertArrayEquals(Arrays.copyOfRange(legacy, header, legacy.length),
+                Arrays.copyOfRange(opcode, 1, opcode.length), m.type().toString());
+        }
+    }
+
+    @Test
+    void truncatedLegacyMessagesAreRejected() {
+        for (Message m : samples()) assertTruncationRejected(m, encode(m, false));
+    }
+
+    @Test
+    void truncatedOpcodeMessagesAreRejected() {
+        for (Message m : samples()) assertTruncationRejected(m, encode(m, true));
+    }
+
+    @Test
+    void compressedFramingRoundTripsAndRejectsTruncation() {
+        List<String> options = new ArrayList<>();
+        for (int i = 0; i < 200; i++) options.add("Option number " + i);
+        StartVote big = new StartVote("vote-big", "Title", "Description", options, true, null, 30);
+        ByteBuf buf = Unpooled.buffer();
+        MessageCodec.encode(buf, big, true, true);
+        byte[] bytes = ByteBufUtil.getBytes(buf);
+        assertEquals(MessageType.START_VOTE.opcode() | Compression.FLAG, bytes[0] & 0xFF);
+        assertTrue(bytes.length < encode(big, true).length);
+        assertArrayEquals(encode(big, true), encode(MessageCodec.decode(Unpooled.wrappedBuffer(bytes)), true));
+        for (int cut = 0; cut < bytes.length; cut++) {
+            ByteBuf prefix = Unpooled.wrappedBuffer(bytes, 0, cut);
+            assertThrows(ProtocolException.class, () -> MessageCodec.decode(prefix), "compressed cut at " + cut);
+        }
+    }
+
+    @Test
+    void unknownSubchannelsAreReported() {
+        ByteBuf legacy = Unpooled.buffer();
+        ModifiedUtf8.write(legacy, "NoSuchChannel");
+        UnknownSubchannelException e = assertThrows(UnknownSubchannelException.class, () -> MessageCodec.decode(legacy));
+        assertEquals("NoSuchChannel", e.subchannel());
+        assertThrows(UnknownSubchannelException.class, () -> MessageCodec.decode(Unpooled.wrappedBuffer(new byte[] {0x7F})));
+    }
+
+    private static void assertRoundTrip(Message m, byte[] bytes, boolean opcodes) {
+        ByteBuf buf = Unpooled.wrappedBuffer(bytes);
+        Message decoded = MessageCodec.decode(buf);
+        assertInstanceOf(m.getClass(), decoded);
+        assertEquals(0, buf.readableBytes(), m.type() + " leaves bytes unread");
+        // records holding arrays compare by identity, so compare encodings
+        assertArrayEquals(bytes, encode(decoded, opcodes), m.type().toString());
+    }
+
+    private static void assertTruncationRejected(Message m, byte[] bytes) {
+        Integer tail = OPTIONAL_TAIL.get(m.type());
+        for (int cut = 0; cut < bytes.length; cut++) {
+            ByteBuf prefix = Unpooled.wrappedBuffer(bytes, 0, cut);
+            if (tail != null && cut == bytes.length - tail) {
+                // the legacy form without the optional field
+                assertEquals(m.type(), MessageCodec.decode(prefix).type());
+                continue;
+            }
+            try {
+                Message decoded = MessageCodec.decode(prefix);
+                fail(m.type() + " cut at " + cut + "/" + bytes.length + " decoded as " + decoded);
+            } catch (ProtocolException expected) {
+                // the codec must not leak IndexOutOfBoundsException or the like
+            }
+        }
+    }
+
+    private static byte[] encode(Message m, boolean opcodes) {
+        ByteBuf buf = Unpooled.buffer();
+        MessageCodec.encode(buf, m, opcodes);
+        return ByteBufUtil.getBytes(buf);
+    }
+}
@@ -0,0 +1,105 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModifiedUtf8Test {
+    private static final String[] SAMPLES = {
+        "",
+        "RequestMods",
+        "nul\0inside",
+        "\0",
+        "Голосование",
+        "€ and ￿",
+        "emoji 😀 pair",
+        "lone \uD800 high and \uDC00 low",
+    };
+
+    @Test
+    void writesLikeDataOutput() throws IOException {
+        for (String s : SAMPLES) {
+            assertArrayEquals(writeUtf(s), encode(s), s);
+            assertEquals(writeUtf(s).length - 2, ModifiedUtf8.encodedLength(s), s);
+        }
+    }
+
+    @Test
+    void readsDataOutput() throws IOException {
+        for (String s : SAMPLES) {
+            ByteBuf buf = Unpooled.wrappedBuffer(writeUtf(s));
+            assertEquals(s, ModifiedUtf8.read(buf));
+            assertEquals(0, buf.readableBytes());
+        }
+    }
+
+    @Test
+    void readsWhatDataInputReads() throws IOException {
+        for (String s : SAMPLES) {
+            byte[] bytes = encode(s);
+            assertEquals(new DataInputStream(new ByteArrayInputStream(bytes)).readUTF(),
+                ModifiedUtf8.read(Unpooled.wrappedBuffer(bytes)));
+        }
+    }
+
+    @Test
+    void acceptsExactly65535Bytes() throws IOException {
+        String max = "x".repeat(ModifiedUtf8.MAX_ENCODED_LENGTH);
+        assertArrayEquals(writeUtf(max), encode(max));
+        assertEquals(max, ModifiedUtf8.read(Unpooled.wrappedBuffer(encode(max))));
+
+        // three-byte chars: 21845 * 3 = 65535
+        String wide = "€".repeat(ModifiedUtf8.MAX_ENCODED_LENGTH / 3);
+        assertArrayEquals(writeUtf(wide), encode(wide));
+    }
+
+    @Test
+    void rejectsMoreThan65535Bytes() {
+        String tooLong = "x".repeat(ModifiedUtf8.MAX_ENCODED_LENGTH + 1);
+        assertThrows(UTFDataFormatException.class, () -> writeUtf(tooLong));
+        assertThrows(ProtocolException.class, () -> ModifiedUtf8.write(Unpooled.buffer(), tooLong));
+        // a NUL takes two bytes, so this is one byte over as well
+        String nulOver = "x".repeat(ModifiedUtf8.MAX_ENCODED_LENGTH - 1) + "\0";
+        assertThrows(ProtocolException.class, () -> ModifiedUtf8.write(Unpooled.buffer(), nulOver));
+    }
+
+    @Test
+    void rejectsTruncatedAndMalformedInput() {
+        byte[] bytes = encode("Голосование");
+        for (int cut = 0; cut < bytes.length; cut++) {
+            ByteBuf buf = Unpooled.wrappedBuffer(bytes, 0, cut);
+            assertThrows(RuntimeException.class, () -> ModifiedUtf8.read(buf), "cut at " + cut);
+        }
+        // continuation byte without a lead byte
+        assertThrows(ProtocolException.class, () -> ModifiedUtf8.read(Unpooled.wrappedBuffer(new byte[] {0, 1, (byte) 0x80})));
+        // two-byte lead at the end of the string
+        assertThrows(ProtocolException.class, () -> ModifiedUtf8.read(Unpooled.wrappedBuffer(new byte[] {0, 1, (byte) 0xC3})));
+        // four-byte UTF-8 is not modified UTF-8
+        assertThrows(ProtocolException.class, () -> ModifiedUtf8.read(
+            Unpooled.wrappedBuffer(new byte[] {0, 4, (byte) 0xF0, (byte) 0x9F, (byte) 0x98, (byte) 0x80})));
+    }
+
+    private static byte[] writeUtf(String s) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataOutputStream(out).writeUTF(s);
+        return out.toByteArray();
+    }
+
+    private static byte[] encode(String s) {
+        ByteBuf buf = Unpooled.buffer();
+        ModifiedUtf8.write(buf, s);
+        return ByteBufUtil.getBytes(buf);
+    }
+}
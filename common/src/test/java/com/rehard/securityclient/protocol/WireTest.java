@@ -0,0 +1,60 @@
+package com.rehard.securityclient.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WireTest {
+
+    @Test
+    void varIntBoundaries() {
+        int[] values = {0, 1, 0x7F, 0x80, 0x3FFF, 0x4000, 0x1FFFFF, 0x200000, 0xFFFFFFF, 0x10000000,
+                        Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        int[] lengths = {1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 5, 5};
+        for (int i = 0; i < values.length; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            Wire.writeVarInt(buf, values[i]);
+            assertEquals(lengths[i], buf.readableBytes(), "length of " + values[i]);
+            assertEquals(values[i], Wire.readVarInt(buf));
+            assertEquals(0, buf.readableBytes());
+        }
+    }
+
+    @Test
+    void varIntEncoding() {
+        assertArrayEquals(new byte[] {0x00}, varInt(0));
+        assertArrayEquals(new byte[] {(byte) 0x80, 0x01}, varInt(128));
+        assertArrayEquals(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, varInt(-1));
+    }
+
+    @Test
+    void zigzagBoundaries() {
+        int[] values = {0, -1, 1, -2, 2, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        int[] encoded = {0, 1, 2, 3, 4, 126, 127, 128, 129, -2, -1};
+        for (int i = 0; i < values.length; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            Wire.writeSignedVarInt(buf, values[i]);
+            ByteBuf raw = buf.duplicate();
+            assertEquals(encoded[i], Wire.readVarInt(raw), "zigzag of " + values[i]);
+            assertEquals(values[i], Wire.readSignedVarInt(buf));
+        }
+    }
+
+    @Test
+    void rejectsOverlongAndTruncatedVarInt() {
+        byte[] sixBytes = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x00};
+        assertThrows(ProtocolException.class, () -> Wire.readVarInt(Unpooled.wrappedBuffer(sixBytes)));
+        assertThrows(IndexOutOfBoundsException.class, () -> Wire.readVarInt(Unpooled.wrappedBuffer(new byte[] {(byte) 0x80})));
+    }
+
+    private static byte[] varInt(int value) {
+        ByteBuf buf = Unpooled.buffer();
+        Wire.writeVarInt(buf, value);
+        return ByteBufUtil.getBytes(buf);
+    }
+}
@@ -0,0 +1,63 @@
+package com.rehard.securityclient.standin;
+
+import com.rehard.securityclient.protocol.ClientHello;
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.MessageCodec;
+import com.rehard.securityclient.protocol.MessageType;
+import com.rehard.securityclient.protocol.ServerHello;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StandinServerTest {
+    private final List<ByteBuf> out = new ArrayList<>();
+    private final StandinServer server = new StandinServer(Profile.DEFAULT, out::add);
+
+    @Test
+    void serverHelloIsLegacyFramedThenOpcodesFollow() {
+        hello(MessageCodec.PROTOCOL_VERSION, MessageCodec.CAPABILITIES);
+        assertServerHelloThenOpcodes();
+    }
+
+    @Test
+    void secondHelloIsAnsweredLegacyFramedToo() {
+        hello(MessageCodec.PROTOCOL_VERSION, MessageCodec.CAPABILITIES);
+        out.clear();
+        hello(MessageCodec.PROTOCOL_VERSION, MessageCodec.CAPABILITIES);
+        assertServerHelloThenOpcodes();
+    }
+
+    @Test
+    void legacyClientGetsLegacyFramingThroughout() {
+        hello(1, 0);
+        for (ByteBuf buf : out) assertEquals(0, buf.getByte(buf.readerIndex()));
+        ServerHello reply = (ServerHello) MessageCodec.decode(out.get(0));
+        assertEquals(1, reply.protocolVersion());
+    }
+
+    private void assertServerHelloThenOpcodes() {
+        ByteBuf first = out.get(0);
+        assertEquals(0, first.getByte(first.readerIndex()), "legacy header starts with a zero byte");
+        ServerHello reply = (ServerHello) MessageCodec.decode(first);
+        assertEquals(MessageCodec.PROTOCOL_VERSION, reply.protocolVersion());
+        assertEquals(MessageCodec.CAPABILITIES, reply.capabilities());
+        assertTrue(out.size() > 1);
+        for (ByteBuf buf : out.subList(1, out.size())) {
+            int header = buf.getByte(buf.readerIndex()) & 0xFF;
+            assertTrue(header != 0, "opcode-framed after ServerHello");
+            assertTrue(MessageCodec.decode(buf).type() != MessageType.SERVER_HELLO);
+        }
+    }
+
+    private void hello(int version, int capabilities) {
+        ByteBuf buf = Unpooled.buffer();
+        MessageCodec.encode(buf, new ClientHello(ContentHash.of(new byte[0]), "hwid", version, capabilities), false);
+        server.fromClient(buf, 0);
+    }
+}
@@ -0,0 +1,116 @@
+package com.rehard.securityclient.vote;
+
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.VoteEnd;
+import com.rehard.securityclient.protocol.VoteStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsMailboxTest {
+    private final StatsMailbox mailbox = new StatsMailbox();
+
+    @Test
+    void keepsTheNewestSnapshot() {
+        assertFalse(mailbox.publish(stats("a", 3), 10));
+        assertTrue(mailbox.publish(stats("a", 5), 20));
+        assertTrue(mailbox.publish(stats("a", 4), 30));
+        StatsMailbox.Pending pending = mailbox.take("a");
+        assertEquals(5, ((VoteStats) pending.message()).seq());
+        // latency counts from the first packet
+        assertEquals(10, pending.receivedNanos());
+        assertNull(mailbox.take("a"));
+    }
+
+    @Test
+    void voteEndIsFinal() {
+        mailbox.publish(stats("a", 1), 0);
+        mailbox.publish(new VoteEnd("a", "ended", null), 0);
+        assertTrue(mailbox.publish(stats("a", 2), 0));
+        assertTrue(mailbox.take("a").message() instanceof VoteEnd);
+        // the ended vote's slot is gone, and a late snapshot does not open a new one
+        assertFalse(mailbox.publish(stats("a", 3), 0));
+        assertNull(mailbox.take("a"));
+    }
+
+    @Test
+    void trailingSnapshotAfterDrainedEndIsDropped() {
+        mailbox.publish(new VoteEnd("a", "ended", null), 0);
+        mailbox.drain(p -> { });
+        mailbox.publish(stats("a", 9), 0);
+        List<Message> rest = new ArrayList<>();
+        mailbox.drain(p -> rest.add(p.message()));
+        assertTrue(rest.isEmpty());
+    }
+
+    @Test
+    void reopenedVoteIdIsAcceptedAgain() {
+        mailbox.publish(new VoteEnd("a", "ended", null), 0);
+        mailbox.take("a");
+        mailbox.reopen("a");
+        assertFalse(mailbox.publish(stats("a", 1), 0));
+        assertEquals(1, ((VoteStats) mailbox.take("a").message()).seq());
+    }
+
+    @Test
+    void onlyRecentEndsAreRemembered() {
+        for (int i = 0; i <= 64; i++) {
+            mailbox.publish(new VoteEnd("v" + i, "ended", null), 0);
+            mailbox.take("v" + i);
+        }
+        // the oldest end has been forgotten, the newest still drops snapshots
+        mailbox.publish(stats("v0", 1), 0);
+        mailbox.publish(stats("v64", 1), 0);
+        assertTrue(mailbox.take("v0") != null);
+        assertNull(mailbox.take("v64"));
+    }
+
+    /**
+     * The order SecurityClientMod.handleStartVote uses: other votes are
+     * drained before the screen opens, the new vote's own slot after.
+     */
+    @Test
+    void voteEndOfTheNewVoteWaitsForItsScreen() {
+        List<String> applied = new ArrayList<>();
+        mailbox.publish(new VoteEnd("old", "ended", null), 0);
+        mailbox.publish(stats("new", 1), 0);
+        mailbox.publish(new VoteEnd("new", "ended", null), 0);
+
+        mailbox.drainExcept("new", p -> applied.add(describe(p.message())));
+        assertEquals(List.of("end old"), applied);
+
+        applied.add("open new");
+        StatsMailbox.Pending own = mailbox.take("new");
+        applied.add(describe(own.message()));
+        assertEquals(List.of("end old", "open new", "end new"), applied);
+
+        List<Message> rest = new ArrayList<>();
+        mailbox.drain(p -> rest.add(p.message()));
+        assertTrue(rest.isEmpty());
+    }
+
+    @Test
+    void drainHandsOverEveryVote() {
+        mailbox.publish(stats("a", 1), 0);
+        mailbox.publish(stats("b", 1), 0);
+        mailbox.publish(new VoteEnd("c", "ended", null), 0);
+        List<String> applied = new ArrayList<>();
+        mailbox.drain(p -> applied.add(describe(p.message())));
+        applied.sort(null);
+        assertEquals(List.of("end c", "stats a", "stats b"), applied);
+    }
+
+    private static VoteStats stats(String voteId, int seq) {
+        return new VoteStats(voteId, new int[] {seq}, seq);
+    }
+
+    private static String describe(Message message) {
+        return message instanceof VoteEnd end ? "end " + end.voteId() : "stats " + ((VoteStats) message).voteId();
+    }
+}
@@ -0,0 +1,99 @@
+package com.rehard.securityclient.vote;
+
+import com.rehard.securityclient.protocol.StatsSubscription;
+import org.junit.jupiter.api.Test;
+
+import static com.rehard.securityclient.vote.StatsThrottle.Decision.SEND;
+import static com.rehard.securityclient.vote.StatsThrottle.Decision.SEND_SNAPSHOT;
+import static com.rehard.securityclient.vote.StatsThrottle.Decision.SKIP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsThrottleTest {
+    private static final long MS = 1_000_000L;
+
+    private final StatsThrottle throttle = new StatsThrottle();
+
+    @Test
+    void unpacedUntilTheFirstSubscription() {
+        for (int i = 0; i < 100; i++) assertEquals(SEND, throttle.onUpdate(i * MS));
+        assertEquals(0, throttle.skipped());
+        assertFalse(throttle.flushDue(100 * MS));
+    }
+
+    @Test
+    void holdsUpdatesToTheSubscribedRate() {
+        throttle.subscribe(watching(10), 0);
+        int sent = 0;
+        // an update every 10 ms for one second, against 10 per second
+        for (long t = 0; t < 1000 * MS; t += 10 * MS) {
+            if (throttle.onUpdate(t) != SKIP) sent++;
+        }
+        assertEquals(10, sent);
+        assertEquals(90, throttle.skipped());
+    }
+
+    @Test
+    void snapshotFollowsHeldBackUpdates() {
+        throttle.subscribe(watching(10), 0);
+        assertEquals(SEND, throttle.onUpdate(0));
+        assertEquals(SKIP, throttle.onUpdate(50 * MS));
+        assertEquals(SEND_SNAPSHOT, throttle.onUpdate(100 * MS));
+        assertEquals(SEND, throttle.onUpdate(200 * MS));
+    }
+
+    @Test
+    void trailingUpdateIsFlushedWithoutAnotherUpdate() {
+        throttle.subscribe(watching(10), 0);
+        assertEquals(SEND, throttle.onUpdate(0));
+        assertEquals(SKIP, throttle.onUpdate(50 * MS));
+        assertFalse(throttle.flushDue(99 * MS));
+        assertTrue(throttle.flushDue(100 * MS));
+        // once only, and the flush counts against the pace
+        assertFalse(throttle.flushDue(300 * MS));
+        assertEquals(SKIP, throttle.onUpdate(150 * MS));
+        assertTrue(throttle.flushDue(200 * MS));
+    }
+
+    @Test
+    void pauseHoldsEverythingAndResumeFlushesAtOnce() {
+        throttle.subscribe(watching(10), 0);
+        assertEquals(SEND, throttle.onUpdate(0));
+        throttle.subscribe(paused(), 10 * MS);
+        assertEquals(SKIP, throttle.onUpdate(500 * MS));
+        assertEquals(SKIP, throttle.onUpdate(900 * MS));
+        assertFalse(throttle.flushDue(1000 * MS));
+
+        throttle.subscribe(watching(10), 1000 * MS);
+        assertTrue(throttle.flushDue(1000 * MS));
+        assertEquals(SKIP, throttle.onUpdate(1050 * MS));
+    }
+
+    @Test
+    void resumeWithNothingHeldBackSendsNothingExtra() {
+        throttle.subscribe(watching(10), 0);
+        throttle.subscribe(paused(), 0);
+        throttle.subscribe(watching(10), 500 * MS);
+        assertFalse(throttle.flushDue(500 * MS));
+        assertEquals(SEND, throttle.onUpdate(500 * MS));
+    }
+
+    @Test
+    void fasterRateTakesEffectAtOnce() {
+        throttle.subscribe(watching(1), 0);
+        assertEquals(SEND, throttle.onUpdate(0));
+        assertEquals(SKIP, throttle.onUpdate(100 * MS));
+        throttle.subscribe(watching(20), 110 * MS);
+        assertEquals(SEND_SNAPSHOT, throttle.onUpdate(120 * MS));
+        assertEquals(SEND, throttle.onUpdate(170 * MS));
+    }
+
+    private static StatsSubscription watching(int rate) {
+        return new StatsSubscription("vote-1", true, rate);
+    }
+
+    private static StatsSubscription paused() {
+        return new StatsSubscription("vote-1", false, 1);
+    }
+}
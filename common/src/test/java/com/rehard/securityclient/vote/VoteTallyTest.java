@@ -0,0 +1,105 @@
+package com.rehard.securityclient.vote;
+
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VoteTallyTest {
+    private static final String VOTE = "vote-1";
+
+    @Test
+    void appliesDeltasInSequence() {
+        VoteTally tally = tally(new int[] {1, 2, 3}, 5);
+        assertEquals(VoteTally.Result.APPLIED, tally.applyDelta(delta(6, new int[] {0, 2}, new int[] {4, -1})));
+        assertEquals(VoteTally.Result.APPLIED, tally.applyDelta(delta(7, new int[] {1}, new int[] {10})));
+        assertCounts(tally, 5, 12, 2);
+        assertEquals(7, tally.seq());
+    }
+
+    @Test
+    void gapTriggersOneResyncUntilSnapshot() {
+        VoteTally tally = tally(new int[] {0, 0, 0}, 5);
+        assertEquals(VoteTally.Result.RESYNC, tally.applyDelta(delta(7, new int[] {0}, new int[] {1})));
+        // reported once; later deltas wait for the snapshot
+        assertEquals(VoteTally.Result.IGNORED, tally.applyDelta(delta(8, new int[] {0}, new int[] {1})));
+        assertEquals(VoteTally.Result.IGNORED, tally.applyDelta(delta(6, new int[] {0}, new int[] {1})));
+        assertCounts(tally, 0, 0, 0);
+
+        assertEquals(VoteTally.Result.APPLIED, tally.applySnapshot(8, new int[] {2, 2, 2}));
+        assertEquals(VoteTally.Result.APPLIED, tally.applyDelta(delta(9, new int[] {2}, new int[] {1})));
+        assertCounts(tally, 2, 2, 3);
+    }
+
+    @Test
+    void staleDeltaIsIgnored() {
+        VoteTally tally = tally(new int[] {1, 1}, 5);
+        assertEquals(VoteTally.Result.IGNORED, tally.applyDelta(delta(5, new int[] {0}, new int[] {1})));
+        assertEquals(VoteTally.Result.IGNORED, tally.applyDelta(delta(3, new int[] {0}, new int[] {1})));
+        assertCounts(tally, 1, 1);
+        // not a gap: the next in-sequence delta still applies
+        assertEquals(VoteTally.Result.APPLIED, tally.applyDelta(delta(6, new int[] {0}, new int[] {1})));
+    }
+
+    @Test
+    void staleSnapshotIsIgnored() {
+        VoteTally tally = tally(new int[] {5, 5}, 10);
+        assertEquals(VoteTally.Result.IGNORED, tally.applySnapshot(9, new int[] {1, 1}));
+        assertCounts(tally, 5, 5);
+        // a snapshot without a sequence (legacy server, VoteEnd) always applies
+        assertEquals(VoteTally.Result.APPLIED, tally.applySnapshot(VoteStats.NO_SEQ, new int[] {7, 7}));
+        assertCounts(tally, 7, 7);
+    }
+
+    @Test
+    void deltaBeforeAnySequencedSnapshotResyncs() {
+        VoteTally tally = new VoteTally(VOTE, 2);
+        assertEquals(VoteTally.Result.RESYNC, tally.applyDelta(delta(1, new int[] {0}, new int[] {1})));
+        tally = tally(new int[] {0, 0}, VoteStats.NO_SEQ);
+        assertEquals(VoteTally.Result.RESYNC, tally.applyDelta(delta(1, new int[] {0}, new int[] {1})));
+    }
+
+    @Test
+    void deltaForUnknownVoteIsRejected() {
+        VoteTally tally = tally(new int[] {0, 0}, 1);
+        VoteStatsDelta other = new VoteStatsDelta("vote-2", 2, new int[] {0}, new int[] {1});
+        assertEquals(VoteTally.Result.IGNORED, tally.applyDelta(other));
+        assertCounts(tally, 0, 0);
+        assertEquals(1, tally.seq());
+        // and it does not count as a gap
+        assertEquals(VoteTally.Result.APPLIED, tally.applyDelta(delta(2, new int[] {1}, new int[] {1})));
+    }
+
+    @Test
+    void patchOutsideOptionsIsRejected() {
+        VoteTally tally = tally(new int[] {0, 0, 0}, 1);
+        assertEquals(VoteTally.Result.RESYNC, tally.applyDelta(delta(2, new int[] {1, 3}, new int[] {1, 1})));
+        assertCounts(tally, 0, 0, 0);
+        assertEquals(1, tally.seq());
+    }
+
+    @Test
+    void snapshotOfWrongSizeIsRejected() {
+        VoteTally tally = tally(new int[] {1, 2}, 1);
+        assertEquals(VoteTally.Result.IGNORED, tally.applySnapshot(2, new int[] {1, 2, 3}));
+        assertCounts(tally, 1, 2);
+    }
+
+    private static VoteTally tally(int[] counts, int seq) {
+        VoteTally tally = new VoteTally(VOTE, counts.length);
+        assertEquals(VoteTally.Result.APPLIED, tally.applySnapshot(seq, counts));
+        return tally;
+    }
+
+    private static VoteStatsDelta delta(int seq, int[] indices, int[] increments) {
+        return new VoteStatsDelta(VOTE, seq, indices, increments);
+    }
+
+    private static void assertCounts(VoteTally tally, int... expected) {
+        int[] actual = new int[tally.size()];
+        tally.copyTo(actual);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,123 @@
+package com.rehard.securityclient;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.rehard.securityclient.capture.SessionRecording;
+import com.rehard.securityclient.metrics.ClientMetrics;
+import com.rehard.securityclient.render.MetricsHud;
+import com.rehard.securityclient.standin.Profile;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.text.Text;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.argument;
+import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.literal;
+
+/**
+ * Client-side {@code /ssavs} command for inspecting the mod in production:
+ * <ul>
+ *   <li>{@code /ssavs metrics hud}  — toggles the metrics overlay</li>
+ *   <li>{@code /ssavs metrics dump} — writes the metrics as JSON under {@code <gameDir>/ssavs}</li>
+ *   <li>{@code /ssavs standin start [profile]} — runs a {@link StandinSession} load test,
+ *       e.g. {@code votes=5 options=200 rate=50 image=262144 url=true}</li>
+ *   <li>{@code /ssavs standin stop} — ends it early; the report is still written</li>
+ *   <li>{@code /ssavs replay <file> [fast]} — plays back a recording from {@code <gameDir>/ssavs},
+ *       e.g. {@code session-prev.ssr}, through a {@link SessionReplay}</li>
+ *   <li>{@code /ssavs replay stop} — ends the replay</li>
+ * </ul>
+ */
+public final class ClientCommands {
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private ClientCommands() {}
+
+    public static void register() {
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> register(dispatcher));
+    }
+
+    private static void register(CommandDispatcher<FabricClientCommandSource> dispatcher) {
+        dispatcher.register(literal("ssavs")
+            .then(literal("metrics")
+                .then(literal("hud").executes(ctx -> {
+                    boolean on = MetricsHud.toggle();
+                    ctx.getSource().sendFeedback(Text.literal("SSaVS metrics overlay " + (on ? "on" : "off")));
+                    return 1;
+                }))
+                .then(literal("dump").executes(ctx -> {
+                    try {
+                        Path file = dumpMetrics();
+                        ctx.getSource().sendFeedback(Text.literal("SSaVS metrics written to " + file));
+                        return 1;
+                    } catch (Exception e) {
+                        ctx.getSource().sendError(Text.literal("Failed to write metrics: " + e.getMessage()));
+                        return 0;
+                    }
+                })))
+            .then(literal("standin")
+                .then(literal("start")
+                    .executes(ctx -> startStandin(ctx.getSource(), ""))
+                    .then(argument("profile", StringArgumentType.greedyString())
+                        .executes(ctx -> startStandin(ctx.getSource(), StringArgumentType.getString(ctx, "profile")))))
+                .then(literal("stop").executes(ctx -> {
+                    boolean stopped = StandinSession.stopActive();
+                    ctx.getSource().sendFeedback(Text.literal(stopped ? "SSaVS stand-in stopping" : "No stand-in running"));
+                    return stopped ? 1 : 0;
+                })))
+            .then(literal("replay")
+                .then(literal("stop").executes(ctx -> {
+                    boolean stopped = SessionReplay.stopActive();
+                    ctx.getSource().sendFeedback(Text.literal(stopped ? "SSaVS replay stopping" : "No replay running"));
+                    return stopped ? 1 : 0;
+                }))
+                .then(argument("file", StringArgumentType.word())
+                    .executes(ctx -> startReplay(ctx.getSource(), StringArgumentType.getString(ctx, "file"), true))
+                    .then(literal("fast")
+                        .executes(ctx -> startReplay(ctx.getSource(), StringArgumentType.getString(ctx, "file"), false))))));
+    }
+
+    private static int startStandin(FabricClientCommandSource source, String spec) {
+        try {
+            Profile profile = Profile.parse(spec);
+            StandinSession.start(profile);
+            source.sendFeedback(Text.literal("SSaVS stand-in started: " + profile));
+            return 1;
+        } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+            source.sendError(Text.literal("Stand-in not started: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int startReplay(FabricClientCommandSource source, String name, boolean realTime) {
+        Path dir = FabricLoader.getInstance().getGameDir().resolve("ssavs");
+        Path file = dir.resolve(name).normalize();
+        if (!file.startsWith(dir)) {
+            source.sendError(Text.literal("Replay not started: " + name + " is outside " + dir));
+            return 0;
+        }
+        try {
+            SessionRecording recording = SessionRecording.read(file);
+            SessionReplay.start(recording, realTime);
+            source.sendFeedback(Text.literal("SSaVS replaying " + recording.frames().size() + " frames from " + file));
+            return 1;
+        } catch (IOException | IllegalStateException e) {
+            source.sendError(Text.literal("Replay not started: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static Path dumpMetrics() throws Exception {
+        Path dir = FabricLoader.getInstance().getGameDir().resolve("ssavs");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("metrics-" + LocalDateTime.now().format(STAMP) + ".json");
+        Files.writeString(file, ClientMetrics.INSTANCE.toJson(), StandardCharsets.UTF_8);
+        return file;
+    }
+}
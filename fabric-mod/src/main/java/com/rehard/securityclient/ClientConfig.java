@@ -0,0 +1,98 @@
+package com.rehard.securityclient;
+
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Client settings read from {@code config/ssavs-client.properties}.  The
+ * file is created with defaults on first start; unknown or malformed
+ * values fall back to the defaults.
+ */
+public final class ClientConfig {
+    private static final String FILE_NAME = "ssavs-client.properties";
+    private static volatile ClientConfig instance = new ClientConfig(new Properties());
+
+    /** Show debug messages as toasts in addition to the log. */
+    public final boolean debugToasts;
+    /** Minimum seconds between two debug toasts of the same category. */
+    public final int toastIntervalSec;
+    /** Show the metrics overlay on start; toggled at runtime with {@code /ssavs metrics hud}. */
+    public final boolean metricsHud;
+    /**
+     * Size in MiB of the ring file {@code <gameDir>/ssavs/session.ssr} that
+     * records the plugin-channel traffic for {@code /ssavs replay}; 0 turns
+     * recording off.
+     */
+    public final int recordingMiB;
+    /**
+     * Seconds between two Ping probes of the plugin-channel round trip, if
+     * the server supports them; 0 turns probing off.
+     */
+    public final int pingIntervalSec;
+
+    private ClientConfig(Properties p) {
+        this.debugToasts = bool(p, "debugToasts", false);
+        this.toastIntervalSec = integer(p, "toastIntervalSec", 3, 0, 3600);
+        this.metricsHud = bool(p, "metricsHud", false);
+        this.recordingMiB = integer(p, "recordingMiB", 0, 0, 512);
+        this.pingIntervalSec = integer(p, "pingIntervalSec", 5, 0, 300);
+    }
+
+    public static ClientConfig get() {
+        return instance;
+    }
+
+    /** Loads the config file, writing the defaults if it does not exist. */
+    public static ClientConfig load() {
+        Path file = FabricLoader.getInstance().getConfigDir().resolve(FILE_NAME);
+        Properties p = new Properties();
+        try {
+            if (Files.exists(file)) {
+                try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    p.load(r);
+                }
+            } else {
+                writeDefaults(file);
+            }
+        } catch (IOException e) {
+            ClientLog.warn(ClientLog.Category.GENERAL, "Could not read " + FILE_NAME + ": " + e.getMessage());
+        }
+        instance = new ClientConfig(p);
+        return instance;
+    }
+
+    private static void writeDefaults(Path file) throws IOException {
+        ClientConfig d = new ClientConfig(new Properties());
+        Properties p = new Properties();
+        p.setProperty("debugToasts", String.valueOf(d.debugToasts));
+        p.setProperty("toastIntervalSec", String.valueOf(d.toastIntervalSec));
+        p.setProperty("metricsHud", String.valueOf(d.metricsHud));
+        p.setProperty("recordingMiB", String.valueOf(d.recordingMiB));
+        p.setProperty("pingIntervalSec", String.valueOf(d.pingIntervalSec));
+        Files.createDirectories(file.getParent());
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            p.store(w, "SSaVS client settings");
+        }
+    }
+
+    private static boolean bool(Properties p, String key, boolean def) {
+        String v = p.getProperty(key);
+        return v == null ? def : Boolean.parseBoolean(v.trim());
+    }
+
+    private static int integer(Properties p, String key, int def, int min, int max) {
+        try {
+            String v = p.getProperty(key);
+            return v == null ? def : Math.max(min, Math.min(max, Integer.parseInt(v.trim())));
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.rehard.securityclient;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.toast.SystemToast;
+import net.minecraft.text.Text;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Logging for the client mod.  Messages are handed to a background thread
+ * that writes them through the game's log4j logger, collapsing runs of
+ * identical messages into one "repeated N times" line.  Callers never
+ * block: if the queue is full, messages are dropped and counted.
+ *
+ * <p>Debug toasts are off by default ({@link ClientConfig#debugToasts}).
+ * When enabled, at most one toast per {@link Category} is shown per
+ * {@link ClientConfig#toastIntervalSec}; the rest are summarised in a
+ * "N more suppressed" toast once the interval has passed.
+ */
+public final class ClientLog {
+    public enum Category { GENERAL, NETWORK, VOTE }
+
+    private static final Logger LOGGER = LogManager.getLogger("SecurityClient");
+    private static final BlockingQueue<Entry> QUEUE = new ArrayBlockingQueue<>(1024);
+    private static final AtomicInteger DROPPED = new AtomicInteger();
+
+    /** Per-category toast throttle state.  Client thread only. */
+    private static final Map<Category, Throttle> THROTTLES = new EnumMap<>(Category.class);
+
+    private record Entry(Level level, String msg) {}
+
+    private static final class Throttle {
+        long lastShown;
+        int suppressed;
+    }
+
+    static {
+        for (Category c : Category.values()) THROTTLES.put(c, new Throttle());
+        Thread t = new Thread(ClientLog::drain, "SSaVS log");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private ClientLog() {}
+
+    public static void info(Category category, String msg) {
+        log(Level.INFO, category, msg);
+    }
+
+    public static void warn(Category category, String msg) {
+        log(Level.WARN, category, msg);
+    }
+
+    private static void log(Level level, Category category, String msg) {
+        if (!QUEUE.offer(new Entry(level, msg))) DROPPED.incrementAndGet();
+        if (ClientConfig.get().debugToasts) toast(category, msg);
+    }
+
+    /**
+     * Shows pending "suppressed" summaries whose interval has elapsed.
+     * Called once per client tick.
+     */
+    public static void tick(MinecraftClient mc) {
+        if (!ClientConfig.get().debugToasts) return;
+        long now = System.currentTimeMillis();
+        long interval = ClientConfig.get().toastIntervalSec * 1000L;
+        for (Map.Entry<Category, Throttle> e : THROTTLES.entrySet()) {
+            Throttle t = e.getValue();
+            if (t.suppressed > 0 && now - t.lastShown >= interval) {
+                show(mc, e.getKey(), t.suppressed + " more suppressed");
+                t.suppressed = 0;
+                t.lastShown = now;
+            }
+        }
+    }
+
+    private static void toast(Category category, String msg) {
+        MinecraftClient mc = MinecraftClient.getInstance();
+        if (mc == null) return;
+        if (!mc.isOnThread()) {
+            mc.execute(() -> toast(category, msg));
+            return;
+        }
+        Throttle t = THROTTLES.get(category);
+        long now = System.currentTimeMillis();
+        if (now - t.lastShown < ClientConfig.get().toastIntervalSec * 1000L) {
+            t.suppressed++;
+            return;
+        }
+        t.lastShown = now;
+        show(mc, category, msg);
+    }
+
+    /** Toasts are abbreviated to 60 characters. */
+    private static void show(MinecraftClient mc, Category category, String msg) {
+        try {
+            if (mc.getToastManager() == null) return;
+            SystemToast.add(
+                mc.getToastManager(),
+                SystemToast.Type.PERIODIC_NOTIFICATION,
+                Text.literal("Security: " + category.name().toLowerCase()),
+                Text.literal(msg.length() > 60 ? msg.substring(0, 60) + "..." : msg)
+            );
+        } catch (Throwable ignore) {
+            // If toast cannot be displayed, do nothing; the log is sufficient
+        }
+    }
+
+    private static void drain() {
+        String last = null;
+        int repeats = 0;
+        while (true) {
+            Entry e;
+            try {
+                e = QUEUE.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                return;
+            }
+            if (e != null && e.msg().equals(last)) {
+                repeats++;
+                continue;
+            }
+            if (repeats > 0) {
+                LOGGER.info("Last message repeated {} times", repeats);
+                repeats = 0;
+            }
+            int dropped = DROPPED.getAndSet(0);
+            if (dropped > 0) LOGGER.warn("{} log messages dropped", dropped);
+            if (e == null) {
+                // idle: the next message is logged even if it equals the last one
+                last = null;
+                continue;
+            }
+            LOGGER.log(e.level(), e.msg());
+            last = e.msg();
+        }
+    }
+}
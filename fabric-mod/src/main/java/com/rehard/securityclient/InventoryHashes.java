@@ -0,0 +1,118 @@
+package com.rehard.securityclient;
+
+import com.rehard.securityclient.inventory.FileHasher;
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.ModHashes;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.api.metadata.ModOrigin;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.resource.ResourcePackProfile;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Content hashes of the files behind the {@link com.rehard.securityclient.protocol.ModList}:
+ * mod origin paths and file resource packs.  Mod files are hashed in the
+ * background at startup, so by the time the server asks only the packs may
+ * need hashing; results persist in {@code <gameDir>/ssavs/file-hashes.txt}.
+ */
+final class InventoryHashes {
+    private static final String FILE_PACK_PREFIX = "file/";
+
+    private static FileHasher hasher;
+    /** Origin paths per mod id, collected once. */
+    private static Map<String, List<Path>> modPaths;
+
+    private InventoryHashes() {}
+
+    /** Starts hashing the mod files so that the first request hits the cache. */
+    static void warmUp() {
+        List<Path> all = new ArrayList<>();
+        for (List<Path> paths : modPaths().values()) all.addAll(paths);
+        hasher().hashAll(all).exceptionally(e -> {
+            ClientLog.warn(ClientLog.Category.NETWORK, "Mod hashing failed: " + e.getMessage());
+            return Map.of();
+        });
+    }
+
+    /**
+     * Hashes the mod files and the enabled file resource packs.  Must be
+     * called on the client thread, which owns the resource pack manager;
+     * the hashing itself runs on the worker pool.
+     */
+    static CompletableFuture<ModHashes> compute(MinecraftClient client) {
+        Map<Path, String> packs = new LinkedHashMap<>();
+        try {
+            Path packDir = client.getResourcePackDir();
+            for (ResourcePackProfile p : client.getResourcePackManager().getEnabledProfiles()) {
+                // only packs from the resourcepacks folder have a file of their own
+                if (p.getId().startsWith(FILE_PACK_PREFIX)) {
+                    packs.put(packDir.resolve(p.getId().substring(FILE_PACK_PREFIX.length())), p.getDisplayName().getString());
+                }
+            }
+        } catch (Throwable ignore) {
+            // Resource pack manager may not be initialised yet; mods only.
+        }
+        Map<String, List<Path>> mods = modPaths();
+        List<Path> all = new ArrayList<>(packs.keySet());
+        for (List<Path> paths : mods.values()) all.addAll(paths);
+
+        return hasher().hashAll(all).thenApply(hashes -> {
+            List<ModHashes.Entry> modEntries = new ArrayList<>();
+            for (Map.Entry<String, List<Path>> e : mods.entrySet()) {
+                for (Path p : e.getValue()) {
+                    ContentHash h = hashes.get(p);
+                    if (h != null) modEntries.add(new ModHashes.Entry(e.getKey(), h));
+                }
+            }
+            List<ModHashes.Entry> packEntries = new ArrayList<>();
+            for (Map.Entry<Path, String> e : packs.entrySet()) {
+                ContentHash h = hashes.get(e.getKey());
+                if (h != null) packEntries.add(new ModHashes.Entry(e.getValue(), h));
+            }
+            return new ModHashes(List.copyOf(modEntries), List.copyOf(packEntries));
+        });
+    }
+
+    private static synchronized Map<String, List<Path>> modPaths() {
+        if (modPaths == null) {
+            Map<String, List<Path>> paths = new LinkedHashMap<>();
+            for (ModContainer c : FabricLoader.getInstance().getAllMods()) {
+                ModOrigin origin = c.getOrigin();
+                // builtin mods (minecraft, java) and jar-in-jar entries have no path
+                if (origin.getKind() == ModOrigin.Kind.PATH) {
+                    paths.put(c.getMetadata().getId(), List.copyOf(origin.getPaths()));
+                }
+            }
+            modPaths = paths;
+        }
+        return modPaths;
+    }
+
+    private static synchronized FileHasher hasher() {
+        if (hasher == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            AtomicInteger n = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "SSaVS hash-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            hasher = new FileHasher(FabricLoader.getInstance().getGameDir().resolve("ssavs").resolve("file-hashes.txt"), pool);
+        }
+        return hasher;
+    }
+}
@@ -1,8 +1,5 @@
 package com.rehard.securityclient;
 
-import com.google.common.io.ByteArrayDataInput;
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -10,42 +7,108 @@ import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
-import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.client.toast.SystemToast;
 import net.minecraft.resource.ResourcePackProfile;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
+import com.rehard.securityclient.capture.SessionRecorder;
+import com.rehard.securityclient.hwid.HardwareId;
+import com.rehard.securityclient.hwid.ProvisionalHwid;
+import com.rehard.securityclient.image.BackgroundCache;
+import com.rehard.securityclient.image.ChunkedDownload;
+import com.rehard.securityclient.image.UrlBackgroundFetcher;
+import com.rehard.securityclient.metrics.ClientMetrics;
 import com.rehard.securityclient.net.RawPluginPayload;
+import com.rehard.securityclient.protocol.ClientHello;
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.Dispatcher;
+import com.rehard.securityclient.protocol.Hwid;
+import com.rehard.securityclient.protocol.ImageChunk;
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.MessageCodec;
+import com.rehard.securityclient.protocol.MessageType;
+import com.rehard.securityclient.protocol.ModHashes;
+import com.rehard.securityclient.protocol.ModList;
+import com.rehard.securityclient.protocol.Ping;
+import com.rehard.securityclient.protocol.Pong;
+import com.rehard.securityclient.protocol.ProtocolException;
+import com.rehard.securityclient.protocol.RequestHwid;
+import com.rehard.securityclient.protocol.RequestImageChunk;
+import com.rehard.securityclient.protocol.RequestMods;
+import com.rehard.securityclient.protocol.RequestVoteStats;
+import com.rehard.securityclient.protocol.ServerHello;
+import com.rehard.securityclient.protocol.StartVote;
+import com.rehard.securityclient.protocol.StatsSubscription;
+import com.rehard.securityclient.protocol.UnknownSubchannelException;
+import com.rehard.securityclient.protocol.VoteBackground;
+import com.rehard.securityclient.protocol.VoteEnd;
+import com.rehard.securityclient.protocol.VoteResponse;
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+import com.rehard.securityclient.render.BackgroundTextures;
+import com.rehard.securityclient.render.MetricsHud;
+import com.rehard.securityclient.vote.StatsMailbox;
+import com.rehard.securityclient.vote.VoteTally;
 
-import java.net.NetworkInterface;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.util.HexFormat;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Client-side implementation for the SSaVS mod.  Uses Bukkit-style
- * plugin messages (DataOutput/DataInput) instead of Fabric's custom
- * payloads to communicate with the Paper plugin on the server.
+ * plugin messages (DataOutput/DataInput layout) instead of Fabric's custom
+ * payloads to communicate with the Paper plugin on the server.  Messages
+ * are decoded into typed records by {@link RawPluginPayload#CODEC}.
  *
  * Supported subchannels (sent by the server):
  *  - "RequestMods"  — server asks the client to send its mod/resource pack list
  *  - "RequestHwid"  — server asks the client to send its hardware identifier
  *  - "StartVote"    — starts a voting UI on the client
- *  - "VoteStats"    — updates vote statistics
+ *  - "VoteStats"    — updates vote statistics (full snapshot)
+ *  - "VoteStatsDelta" — patches vote statistics with the changed options only
  *  - "VoteEnd"      — finalizes a vote and unfreezes the player if needed
- *  - "Pong"         — reply to a connectivity check (optional)
+ *  - "VoteBackground" — announces a vote background by SHA-256 hash
+ *  - "ImageChunk"   — a range of background bytes requested by the client
+ *  - "Pong"         — reply to a connectivity check, or to the client's Ping
+ *  - "ServerHello"  — completes the version handshake started by ClientHello
  *
- * The client proactively sends its mod/resource-pack list and hardware
- * identifier as soon as it joins the server, so that the server can
- * validate even if it never sends a RequestMods/RequestHwid packet.
+ * Subchannels are identified by their legacy name until the handshake
+ * settles on protocol version 2, after which both sides use one-byte
+ * opcodes; incoming messages are accepted in either form.
+ *
+ * After joining, once the resource-pack manager has settled, the client
+ * sends a single "ClientHello" with its hardware identifier and a digest
+ * of its mod/resource-pack set.  The full "ModList" is only sent when the
+ * server replies with RequestMods because it does not know that digest.
+ * A server on the old plugin ignores the ClientHello; if no ServerHello
+ * arrives within {@link #HELLO_TIMEOUT_TICKS}, the client falls back to
+ * the legacy "ModList" and "Hwid" pair, still on string subchannels.
+ * On protocol version 2 it is followed by "ModHashes", the SHA-256 of every
+ * mod file and file resource pack, once they are hashed off-thread.
+ *
+ * If the server announced {@link MessageCodec#CAP_PING}, the client sends a
+ * timestamped "Ping" every {@link ClientConfig#pingIntervalSec} seconds.
+ * The Pong echoes the timestamp with the time the server held the Ping,
+ * and both go into the RTT histograms of {@link ClientMetrics}.
+ *
+ * VoteStats and VoteEnd are not queued per packet: the codec publishes them
+ * into {@link StatsMailbox} on the network thread and the client applies
+ * the newest one per vote at the end of each tick.
  */
 @Environment(EnvType.CLIENT)
 public final class SecurityClientMod implements ClientModInitializer {
@@ -54,61 +117,195 @@ public final class SecurityClientMod implements ClientModInitializer {
      * Plugin message channel used for all client/server communication. Must
      * exactly match the channel name used on the Paper plugin side.
      */
-    /** Toggle for freezing/unfreezing player movement during votes. */
+    /**
+     * Toggle for freezing/unfreezing player movement during votes.  Read by
+     * the input and movement-packet mixins in {@code mixin}.
+     */
     private static volatile boolean freezeMovement = false;
 
+    /** Size budget of the on-disk background cache. */
+    private static final long BACKGROUND_CACHE_BYTES = 64L * 1024 * 1024;
+    /** Lazily opened on the first announced background; null if unavailable. */
+    private static BackgroundCache backgroundCache;
+    private static boolean backgroundCacheOpened;
+    /** Connect and request timeout for backgrounds given by URL. */
+    private static final Duration BACKGROUND_URL_TIMEOUT = Duration.ofSeconds(10);
+    /** Created with the cache; null if the cache is unavailable. */
+    private static UrlBackgroundFetcher backgroundFetcher;
+    /** Hash check and disk write of downloaded backgrounds, off the client thread. */
+    private static final ExecutorService BACKGROUND_STORE = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SSaVS background store");
+        t.setDaemon(true);
+        return t;
+    });
+    /** Background transfers in progress, by hash.  Client thread only. */
+    private static final Map<ContentHash, ChunkedDownload> downloads = new HashMap<>();
+
+    /** Longest the client thread waits for the background HWID computation. */
+    private static final long HWID_WAIT_MS = 250;
+    /** At most one full-HWID follow-up per connection. */
+    private static final ProvisionalHwid HWID = new ProvisionalHwid();
+
+    /** Set on join; the hello goes out on the first tick without a resource reload. */
+    private static boolean helloPending = false;
+    /** Ticks to wait for ServerHello before assuming a server on the old plugin (5 s). */
+    private static final int HELLO_TIMEOUT_TICKS = 100;
+    /** Ticks left until the legacy fallback; 0 when not waiting. */
+    private static int serverHelloWait;
+    /** Mod ids never change during a session; collected once. */
+    private static List<String> modIds;
+    /** Last inventory sent, reused while the enabled packs stay the same. */
+    private static ModList inventory;
+    private static ContentHash inventoryDigest;
+
+    /** Pongs claiming a longer round trip are stale or bogus and not recorded. */
+    private static final long MAX_PING_RTT_NANOS = 60_000_000_000L;
+    /** When the next Ping is due.  Client thread only. */
+    private static long nextPingAt;
+
+    /** Arrival time of the packet being dispatched, for effect-latency metrics.  Client thread only. */
+    private static long receivedNanos;
+
+    /** Server-to-client handlers, keyed by opcode.  Invoked on the client thread. */
+    private static final Dispatcher DISPATCHER = new Dispatcher()
+        .register(MessageType.REQUEST_MODS, RequestMods.class, m -> sendModList(MinecraftClient.getInstance()))
+        .register(MessageType.REQUEST_HWID, RequestHwid.class, m -> sendHwid(MinecraftClient.getInstance()))
+        .register(MessageType.SERVER_HELLO, ServerHello.class, SecurityClientMod::handleServerHello)
+        .register(MessageType.START_VOTE, StartVote.class, SecurityClientMod::handleStartVote)
+        .register(MessageType.VOTE_STATS, VoteStats.class, SecurityClientMod::publishStats)
+        .register(MessageType.VOTE_STATS_DELTA, VoteStatsDelta.class, SecurityClientMod::handleVoteStatsDelta)
+        .register(MessageType.VOTE_END, VoteEnd.class, SecurityClientMod::publishStats)
+        .register(MessageType.VOTE_BACKGROUND, VoteBackground.class, SecurityClientMod::handleVoteBackground)
+        .register(MessageType.IMAGE_CHUNK, ImageChunk.class, SecurityClientMod::handleImageChunk)
+        .register(MessageType.PONG, Pong.class, SecurityClientMod::handlePong);
+
     @Override
     public void onInitializeClient() {
+        ClientConfig config = ClientConfig.load();
+        // Network interface enumeration is slow on some machines; keep it off the join path.
+        HardwareId.precompute();
+        // Same for hashing the mod jars, which the server may ask for on join.
+        InventoryHashes.warmUp();
+        if (config.recordingMiB > 0) startRecording(config.recordingMiB);
 
         PayloadTypeRegistry.playS2C().register(RawPluginPayload.ID, RawPluginPayload.CODEC);
         PayloadTypeRegistry.playC2S().register(RawPluginPayload.ID, RawPluginPayload.CODEC);
         // Register a global receiver for plugin messages from the server.
-        // Messages are encoded using DataOutput (UTF/int/boolean) and must
-        // therefore be decoded with DataInput.
-        ClientPlayNetworking.registerGlobalReceiver(RawPluginPayload.ID, (payload, ctx) -> {
-            byte[] bytes = payload.data();
-            ByteArrayDataInput in = ByteStreams.newDataInput(bytes);
-            String sub = safeReadUTF(in);
-            if (sub == null) return;
-            switch (sub) {
-                case "RequestMods" -> ctx.client().execute(() -> sendModList(ctx.client()));
-                case "RequestHwid" -> ctx.client().execute(() -> sendHwid(ctx.client()));
-                case "StartVote"   -> ctx.client().execute(() -> handleStartVote(in));
-                case "VoteStats"   -> ctx.client().execute(() -> handleVoteStats(in));
-                case "VoteEnd"     -> ctx.client().execute(() -> handleVoteEnd(in));
-                case "Pong"        -> logClient("Received Pong from server");
-                default -> logClient("Unknown subchannel: " + sub);
-            }
-        });
+        // The payload codec has already decoded and validated the message on
+        // the network thread; Fabric invokes this receiver on the client
+        // thread, so handlers run directly without another execute() hop.
+        ClientPlayNetworking.registerGlobalReceiver(RawPluginPayload.ID, (payload, ctx) -> receive(payload));
 
-        // Proactively send mod/resource pack list and HWID upon joining a server.
-        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
-            sendModList(client);
-            sendHwid(client);
-            // additional send on next tick to catch resource-pack manager initialisation
-            client.execute(() -> {
-                sendModList(client);
-                sendHwid(client);
-            });
+        // Announce ourselves once per join, as soon as resource packs are loaded.
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> helloPending = true);
+        ClientTickEvents.END_CLIENT_TICK.register(ClientLog::tick);
+        ClientTickEvents.END_CLIENT_TICK.register(mc -> applyPendingStats());
+        ClientTickEvents.END_CLIENT_TICK.register(mc -> {
+            if (!helloPending || mc.getOverlay() != null || mc.getNetworkHandler() == null) return;
+            helloPending = false;
+            sendHello(mc);
+            serverHelloWait = HELLO_TIMEOUT_TICKS;
         });
+        ClientTickEvents.END_CLIENT_TICK.register(SecurityClientMod::tickServerHelloWait);
+        ClientTickEvents.END_CLIENT_TICK.register(SecurityClientMod::tickPing);
+        ClientTickEvents.END_CLIENT_TICK.register(mc -> retryDownloads());
 
-        // Freeze player movement every tick when freezeMovement is active.
-        ClientTickEvents.START_CLIENT_TICK.register(mc -> {
-            if (!freezeMovement) return;
-            ClientPlayerEntity player = mc.player;
-            if (player != null) {
-                player.setVelocity(0, player.getVelocity().y, 0);
-                player.setSprinting(false);
-            }
-        });
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> client.execute(() -> {
+            StandinSession.stopActive();
+            SessionReplay.stopActive();
+            downloads.clear();
+            StatsMailbox.INSTANCE.clear();
+            helloPending = false;
+            serverHelloWait = 0;
+            HWID.reset();
+            nextPingAt = 0;
+            logPingSummary();
+            RawPluginPayload.setProtocolVersion(1, 0);
+        }));
 
-        logClient("SecurityClientMod initialised");
+        MetricsHud.register(config.metricsHud);
+        ClientCommands.register();
+
+        ClientLog.info(ClientLog.Category.GENERAL, "SecurityClientMod initialised");
+    }
+
+    /**
+     * Handles one incoming payload on the client thread, whether it came
+     * from the server or from a {@link StandinSession}.
+     */
+    static void receive(RawPluginPayload payload) {
+        if (payload.error() != null) {
+            handleDecodeError(payload.error());
+            return;
+        }
+        // VoteStats/VoteEnd: already in the mailbox, applied at the end of the tick
+        if (payload.message() == null) return;
+        receivedNanos = payload.receivedNanos();
+        if (!DISPATCHER.dispatch(payload.message())) {
+            ClientLog.info(ClientLog.Category.NETWORK, "Unexpected subchannel: " + payload.message().type().wireName());
+        }
     }
 
     // -------------------------------------------------------------------------
     // Outgoing messages (client -> server)
     // -------------------------------------------------------------------------
 
+    /**
+     * Sends a message to the server, or to the stand-in server while one
+     * runs.  Dropped during a {@link SessionReplay}.
+     */
+    private static void send(Message message) {
+        StandinSession standin = StandinSession.active();
+        if (standin != null) {
+            standin.toServer(message);
+        } else if (SessionReplay.active() != null) {
+            ClientLog.info(ClientLog.Category.NETWORK, "Replay: not sending " + message.type().wireName());
+        } else {
+            ClientPlayNetworking.send(new RawPluginPayload(message));
+        }
+    }
+
+    /**
+     * Records the connection traffic into {@code <gameDir>/ssavs/session.ssr}
+     * for this run; the previous run's file is kept as {@code session-prev.ssr}.
+     */
+    private static void startRecording(int mib) {
+        Path dir = FabricLoader.getInstance().getGameDir().resolve("ssavs");
+        Path file = dir.resolve("session.ssr");
+        try {
+            if (Files.exists(file)) {
+                Files.move(file, dir.resolve("session-prev.ssr"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            RawPluginPayload.setRecorder(new SessionRecorder(file, mib * 1024 * 1024));
+            ClientLog.info(ClientLog.Category.NETWORK, "Recording plugin-channel traffic to " + file + " (" + mib + " MiB)");
+        } catch (IOException e) {
+            ClientLog.warn(ClientLog.Category.NETWORK, "Session recording unavailable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the ClientHello handshake again on the next tick; used by the
+     * stand-in server, which expects it like a real join.
+     */
+    static void restartHandshake() {
+        RawPluginPayload.setProtocolVersion(1, 0);
+        helloPending = true;
+        serverHelloWait = 0;
+    }
+
+    /**
+     * Counts down the wait for ServerHello.  The old plugin never answers a
+     * ClientHello and validates only what is sent unasked, so it gets the
+     * ModList and Hwid that clients sent on join before the handshake.
+     */
+    private static void tickServerHelloWait(MinecraftClient client) {
+        if (serverHelloWait == 0 || --serverHelloWait > 0) return;
+        if (client.getNetworkHandler() == null) return;
+        ClientLog.info(ClientLog.Category.NETWORK, "No ServerHello, sending the legacy ModList and Hwid");
+        sendModList(client);
+        sendHwid(client);
+    }
+
     /**
      * Sends a vote response.  Exposed as static so VoteScreen can call it.
      *
@@ -117,98 +314,162 @@ public final class SecurityClientMod implements ClientModInitializer {
      */
     public static void sendVoteResponse(String voteId, int optionIndex) {
         try {
-            var out = ByteStreams.newDataOutput();
-            out.writeUTF("VoteResponse");
-            out.writeUTF(voteId);
-            out.writeInt(optionIndex);
-            ClientPlayNetworking.send(new RawPluginPayload(out.toByteArray()));
-            logClient("Sent VoteResponse for " + voteId + " option=" + optionIndex);
+            send(new VoteResponse(voteId, optionIndex));
+            ClientLog.info(ClientLog.Category.VOTE, "Sent VoteResponse for " + voteId + " option=" + optionIndex);
         } catch (Exception e) {
-            logClient("Failed to send VoteResponse: " + e.getMessage());
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to send VoteResponse: " + e.getMessage());
         }
     }
 
     /**
-     * Collects the list of installed mods and enabled resource packs and
-     * sends them to the server.  Called both on JOIN and when the
-     * server explicitly requests the list via "RequestMods".
+     * Sends a timestamped Ping once the interval has passed, while connected
+     * to a server (or stand-in) that answers it.  Not during a replay, whose
+     * Pongs echo another session's clock.
      */
-    private static void sendModList(MinecraftClient client) {
+    private static void tickPing(MinecraftClient mc) {
+        int intervalSec = ClientConfig.get().pingIntervalSec;
+        if (intervalSec == 0 || (RawPluginPayload.capabilities() & MessageCodec.CAP_PING) == 0) return;
+        if (SessionReplay.active() != null) return;
+        if (mc.getNetworkHandler() == null && StandinSession.active() == null) return;
+        long now = System.nanoTime();
+        if (nextPingAt != 0 && now - nextPingAt < 0) return;
+        nextPingAt = now + intervalSec * 1_000_000_000L;
         try {
-            // Gather mod IDs from FabricLoader
-            Collection<ModContainer> mods = FabricLoader.getInstance().getAllMods();
-            List<String> modIds = new ArrayList<>(mods.size());
-            for (ModContainer c : mods) modIds.add(c.getMetadata().getId());
-
-            // Gather resource pack names from the client's manager
-            List<String> packs = new ArrayList<>();
-            try {
-                var rpm = client.getResourcePackManager();
-                for (ResourcePackProfile p : rpm.getEnabledProfiles()) packs.add(p.getDisplayName().getString());
-            } catch (Throwable ignore) {
-                // Resource pack manager may not be initialised yet; skip for now.
-            }
+            send(new Ping(now));
+        } catch (Exception e) {
+            ClientLog.warn(ClientLog.Category.NETWORK, "Failed to send Ping: " + e.getMessage());
+        }
+    }
 
-            // Encode into raw bytes using DataOutput in the exact order expected by the server
-            ByteArrayDataOutput out = ByteStreams.newDataOutput();
-            out.writeUTF("ModList");
-            out.writeInt(modIds.size());
-            for (String id : modIds) out.writeUTF(id);
-            out.writeInt(packs.size());
-            for (String pack : packs) out.writeUTF(pack);
+    /**
+     * Tells the server how many stats updates of a vote the screen wants.
+     *
+     * @return whether it was sent; not if the server did not announce
+     *         {@link MessageCodec#CAP_STATS_SUBSCRIPTION}
+     */
+    static boolean sendStatsSubscription(String voteId, boolean watching, int maxPerSecond) {
+        if ((RawPluginPayload.capabilities() & MessageCodec.CAP_STATS_SUBSCRIPTION) == 0) return false;
+        try {
+            send(new StatsSubscription(voteId, watching, maxPerSecond));
+            ClientLog.info(ClientLog.Category.VOTE, "Sent StatsSubscription for " + voteId
+                + (watching ? ": " + maxPerSecond + "/s" : ": paused"));
+            return true;
+        } catch (Exception e) {
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to send StatsSubscription: " + e.getMessage());
+            return false;
+        }
+    }
 
-            ClientPlayNetworking.send(new RawPluginPayload(out.toByteArray()));
+    /**
+     * Sends the ClientHello: the HWID plus a digest of the mod/resource-pack
+     * set.  The server answers with RequestMods if it does not know the
+     * digest.
+     */
+    private static void sendHello(MinecraftClient client) {
+        try {
+            ModList list = inventory(client);
+            String hwid = hwid();
+            send(new ClientHello(inventoryDigest, hwid, MessageCodec.PROTOCOL_VERSION, MessageCodec.CAPABILITIES));
+            ClientLog.info(ClientLog.Category.NETWORK, "Sent ClientHello: " + list.modIds().size() + " mods, " + list.packs().size()
+                + " packs, digest " + inventoryDigest.hex().substring(0, 12));
+        } catch (Exception e) {
+            ClientLog.warn(ClientLog.Category.NETWORK, "Failed to send ClientHello: " + e.getMessage());
+        }
+    }
 
-            logClient("Sent ModList: " + modIds.size() + " mods, " + packs.size() + " packs");
+    /**
+     * Sends the full list of installed mods and enabled resource packs.
+     * Called when the server explicitly requests it via "RequestMods".
+     */
+    private static void sendModList(MinecraftClient client) {
+        try {
+            ModList list = inventory(client);
+            send(list);
+            ClientLog.info(ClientLog.Category.NETWORK, "Sent ModList: " + list.modIds().size() + " mods, " + list.packs().size() + " packs");
         } catch (Exception e) {
-            logClient("Failed to send ModList: " + e.getMessage());
+            ClientLog.warn(ClientLog.Category.NETWORK, "Failed to send ModList: " + e.getMessage());
+            return;
         }
+        // servers still on string subchannels do not know ModHashes
+        if (RawPluginPayload.protocolVersion() < MessageCodec.OPCODE_VERSION) return;
+        InventoryHashes.compute(client).whenComplete((hashes, err) -> client.execute(() -> {
+            if (err != null) {
+                ClientLog.warn(ClientLog.Category.NETWORK, "Failed to hash mods: " + err.getMessage());
+            } else if (client.getNetworkHandler() != null) {
+                sendModHashes(hashes);
+            }
+        }));
     }
 
     /**
-     * Computes a simple hardware identifier based on MAC address and system
-     * properties and sends it to the server.
+     * Sends the content hashes of the mods and packs listed in the ModList.
      */
-    private static void sendHwid(MinecraftClient client) {
+    private static void sendModHashes(ModHashes hashes) {
         try {
-            String hwid = computeHwid();
-            ByteArrayDataOutput out = ByteStreams.newDataOutput();
-            out.writeUTF("Hwid");
-            out.writeUTF(hwid);
-            ClientPlayNetworking.send(new RawPluginPayload(out.toByteArray()));
-            logClient("Sent HWID: " + hwid);
+            send(hashes);
+            ClientLog.info(ClientLog.Category.NETWORK, "Sent ModHashes: " + hashes.mods().size() + " mod files, " + hashes.packs().size() + " packs");
         } catch (Exception e) {
-            logClient("Failed to send HWID: " + e.getMessage());
+            ClientLog.warn(ClientLog.Category.NETWORK, "Failed to send ModHashes: " + e.getMessage());
         }
     }
 
     /**
-     * Builds a hardware ID hash using available network interface MAC address
-     * and a few system properties.  Returns a hex-encoded SHA-256 digest.
+     * Returns the current mod/resource-pack inventory and keeps its digest
+     * in {@link #inventoryDigest}.  Mod ids are gathered once per session;
+     * the digest is only recomputed when the enabled packs change.
      */
-    private static String computeHwid() throws Exception {
-        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+    private static ModList inventory(MinecraftClient client) {
+        if (modIds == null) {
+            Collection<ModContainer> mods = FabricLoader.getInstance().getAllMods();
+            List<String> ids = new ArrayList<>(mods.size());
+            for (ModContainer c : mods) ids.add(c.getMetadata().getId());
+            modIds = List.copyOf(ids);
+        }
 
+        // Gather resource pack names from the client's manager
+        List<String> packs = new ArrayList<>();
         try {
-            var en = NetworkInterface.getNetworkInterfaces();
-            if (en != null) {
-                while (en.hasMoreElements()) {
-                    byte[] mac = en.nextElement().getHardwareAddress();
-                    if (mac != null) {
-                        sha.update(mac);
-                        break;
-                    }
-                }
-            }
+            var rpm = client.getResourcePackManager();
+            for (ResourcePackProfile p : rpm.getEnabledProfiles()) packs.add(p.getDisplayName().getString());
         } catch (Throwable ignore) {
-            // Ignore network interface issues
+            // Resource pack manager may not be initialised yet; skip for now.
         }
 
-        sha.update(System.getProperty("os.name", "").getBytes(StandardCharsets.UTF_8));
-        sha.update(System.getProperty("os.version", "").getBytes(StandardCharsets.UTF_8));
-        sha.update(System.getProperty("user.name", "").getBytes(StandardCharsets.UTF_8));
+        if (inventory == null || !inventory.packs().equals(packs)) {
+            inventory = new ModList(modIds, List.copyOf(packs));
+            inventoryDigest = ClientHello.digest(inventory.modIds(), inventory.packs());
+        }
+        return inventory;
+    }
 
-        return HexFormat.of().formatHex(sha.digest());
+    /**
+     * Sends the hardware identifier precomputed at init to the server.
+     */
+    private static void sendHwid(MinecraftClient client) {
+        try {
+            String hwid = hwid();
+            send(new Hwid(hwid));
+            ClientLog.info(ClientLog.Category.NETWORK, "Sent HWID: " + hwid);
+        } catch (Exception e) {
+            ClientLog.warn(ClientLog.Category.NETWORK, "Failed to send HWID: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the memoized HWID, waiting briefly if the background
+     * computation has not finished yet.  The fallback returned then is only
+     * provisional: the full identifier follows in a Hwid message as soon as
+     * it is computed, unless the connection is gone by then.
+     */
+    private static String hwid() {
+        MinecraftClient mc = MinecraftClient.getInstance();
+        var handler = mc.getNetworkHandler();
+        // send() queues, so the Hwid always goes out after the message carrying the fallback
+        String hwid = HWID.get(HWID_WAIT_MS, full -> mc.send(() -> {
+            if (handler != null && mc.getNetworkHandler() == handler) sendHwid(mc);
+        }));
+        if (!HWID.isReady()) ClientLog.warn(ClientLog.Category.NETWORK, "HWID not ready in time, sent provisional fallback");
+        return hwid;
     }
 
     // -------------------------------------------------------------------------
@@ -216,61 +477,148 @@ public final class SecurityClientMod implements ClientModInitializer {
     // -------------------------------------------------------------------------
 
     /**
-     * Handles the StartVote packet.  Reads vote data from the input and opens
-     * the VoteScreen.  Freezes player movement if movement is not allowed.
+     * Handles ServerHello, completing the version handshake.  From protocol
+     * version 2 on, outgoing messages use one-byte opcodes, and large ones
+     * are deflated if the server agreed to {@link MessageCodec#CAP_DEFLATE}.
+     */
+    private static void handleServerHello(ServerHello msg) {
+        serverHelloWait = 0;
+        int version = Math.min(msg.protocolVersion(), MessageCodec.PROTOCOL_VERSION);
+        int capabilities = version >= MessageCodec.OPCODE_VERSION ? msg.capabilities() & MessageCodec.CAPABILITIES : 0;
+        RawPluginPayload.setProtocolVersion(version, capabilities);
+        ClientLog.info(ClientLog.Category.NETWORK, "Negotiated protocol version " + version
+            + ((capabilities & MessageCodec.CAP_DEFLATE) != 0 ? " with compression" : ""));
+    }
+
+    /**
+     * Handles Pong.  An answer to our Ping yields the round trip, measured
+     * to the packet's arrival on the network thread so that client-thread
+     * stalls are not counted, and the server's share of it.
+     */
+    private static void handlePong(Pong msg) {
+        if (!msg.answersPing()) {
+            ClientLog.info(ClientLog.Category.NETWORK, "Received Pong from server");
+            return;
+        }
+        if (SessionReplay.active() != null) return;
+        long arrived = receivedNanos != 0 ? receivedNanos : System.nanoTime();
+        long rtt = arrived - msg.pingNanos();
+        if (rtt < 0 || rtt > MAX_PING_RTT_NANOS) return;
+        ClientMetrics.INSTANCE.recordPing(rtt, Math.max(0, Math.min(msg.serverNanos(), rtt)));
+    }
+
+    private static void logPingSummary() {
+        ClientMetrics m = ClientMetrics.INSTANCE;
+        if (m.pingRttNanos().count() == 0) return;
+        ClientLog.info(ClientLog.Category.NETWORK, String.format(
+            "Ping over %d probes: rtt p50 %.1fms p99 %.1fms max %.1fms, server p50 %.1fms p99 %.1fms",
+            m.pingRttNanos().count(),
+            m.pingRttNanos().percentile(0.5) / 1e6, m.pingRttNanos().percentile(0.99) / 1e6, m.pingRttNanos().max() / 1e6,
+            m.pingServerNanos().percentile(0.5) / 1e6, m.pingServerNanos().percentile(0.99) / 1e6));
+    }
+
+    /**
+     * Handles the StartVote packet by opening the VoteScreen.  Freezes player
+     * movement if movement is not allowed.
      */
-    private static void handleStartVote(ByteArrayDataInput in) {
+    private static void handleStartVote(StartVote msg) {
+        long startReceived = receivedNanos;
+        // a vote id the server reuses starts with an open slot again; the
+        // codec did so in packet order, this covers messages that bypass it
+        StatsMailbox.INSTANCE.reopen(msg.voteId());
+        // a VoteEnd still in the mailbox for another vote must not unfreeze
+        // the player after the new screen is open
+        StatsMailbox.INSTANCE.drainExcept(msg.voteId(), SecurityClientMod::applyPending);
         try {
-            String voteId = in.readUTF();
-            String title = in.readUTF();
-            String desc = in.readUTF();
-            int optionCount = in.readInt();
-            if (optionCount < 0 || optionCount > 10_000) return;
-            List<String> options = new ArrayList<>(optionCount);
-            for (int i = 0; i < optionCount; i++) options.add(in.readUTF());
-            boolean allowMove = in.readBoolean();
-            boolean hasImage = in.readBoolean();
-            String imageData = null;
-            if (hasImage) imageData = in.readUTF();
-            int duration = in.readInt();
-            // Freeze movement if not allowed
-            if (!allowMove) freezeMovement();
             MinecraftClient.getInstance().setScreen(
-                new VoteScreen(voteId, title, desc, options, !allowMove, imageData, duration)
+                new VoteScreen(msg.voteId(), msg.title(), msg.description(), msg.options(),
+                               !msg.allowMove(), msg.imageData(), msg.durationSec())
             );
+            // Freeze movement if not allowed; after setScreen, whose removed()
+            // on a previous vote screen unfreezes
+            if (!msg.allowMove()) freezeMovement();
+            ClientMetrics.INSTANCE.markPending(MessageType.START_VOTE, startReceived);
+            // stats or even the end of this vote, published while StartVote
+            // waited for the client thread, now find the screen
+            StatsMailbox.Pending own = StatsMailbox.INSTANCE.take(msg.voteId());
+            if (own != null) applyPending(own);
         } catch (Exception e) {
-            logClient("Failed to handle StartVote: " + e.getMessage());
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to handle StartVote: " + e.getMessage());
+        }
+        receivedNanos = startReceived;
+    }
+
+    /**
+     * Publishes a VoteStats or VoteEnd that did not come through the codec
+     * (tests, replays) into the mailbox, like the network thread does.
+     */
+    private static void publishStats(Message msg) {
+        if (StatsMailbox.INSTANCE.publish(msg, receivedNanos)) ClientMetrics.INSTANCE.recordStatsCoalesced();
+    }
+
+    /**
+     * Applies the newest VoteStats or VoteEnd of every vote.  Runs once per
+     * tick, so snapshots superseded within the tick are never applied.
+     */
+    private static void applyPendingStats() {
+        StatsMailbox.INSTANCE.drain(SecurityClientMod::applyPending);
+    }
+
+    private static void applyPending(StatsMailbox.Pending pending) {
+        receivedNanos = pending.receivedNanos();
+        if (pending.message() instanceof VoteStats stats) {
+            handleVoteStats(stats);
+        } else if (pending.message() instanceof VoteEnd end) {
+            handleVoteEnd(end);
         }
     }
 
     /**
      * Handles VoteStats by updating counts on the active VoteScreen.
      */
-    private static void handleVoteStats(ByteArrayDataInput in) {
+    private static void handleVoteStats(VoteStats msg) {
+        try {
+            if (VoteScreen.updateStats(msg.voteId(), msg.seq(), msg.counts())) {
+                ClientMetrics.INSTANCE.markPending(MessageType.VOTE_STATS, receivedNanos);
+            }
+        } catch (Exception e) {
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to handle VoteStats: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles VoteStatsDelta by patching counts on the active VoteScreen.  On
+     * a sequence gap asks the server for a full snapshot instead.
+     */
+    private static void handleVoteStatsDelta(VoteStatsDelta msg) {
+        // the delta follows any snapshot published before it
+        StatsMailbox.Pending pending = StatsMailbox.INSTANCE.take(msg.voteId());
+        if (pending != null) {
+            long deltaReceived = receivedNanos;
+            applyPending(pending);
+            receivedNanos = deltaReceived;
+        }
         try {
-            String voteId = in.readUTF();
-            int n = in.readInt();
-            if (n < 0 || n > 10_000) return;
-            int[] counts = new int[n];
-            for (int i = 0; i < n; i++) counts[i] = in.readInt();
-            VoteScreen.updateStats(voteId, counts);
+            VoteTally.Result result = VoteScreen.applyStatsDelta(msg);
+            if (result == VoteTally.Result.APPLIED) {
+                ClientMetrics.INSTANCE.markPending(MessageType.VOTE_STATS_DELTA, receivedNanos);
+            } else if (result == VoteTally.Result.RESYNC) {
+                send(new RequestVoteStats(msg.voteId()));
+                ClientLog.warn(ClientLog.Category.VOTE, "VoteStatsDelta gap for " + msg.voteId() + " at seq=" + msg.seq() + ", requested snapshot");
+            }
         } catch (Exception e) {
-            logClient("Failed to handle VoteStats: " + e.getMessage());
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to handle VoteStatsDelta: " + e.getMessage());
         }
     }
 
     /**
      * Handles VoteEnd, finalising a vote, unfreezing movement and showing a toast.
      */
-    private static void handleVoteEnd(ByteArrayDataInput in) {
+    private static void handleVoteEnd(VoteEnd msg) {
         try {
-            String voteId = in.readUTF();
-            String reason = in.readUTF();
-            int n = in.readInt();
-            if (n < 0 || n > 10_000) n = 0;
-            int[] counts = new int[n];
-            for (int i = 0; i < n; i++) counts[i] = in.readInt();
-            VoteScreen.forceClose(voteId, counts);
+            String reason = msg.reason();
+            downloads.values().removeIf(d -> d.voteId().equals(msg.voteId()));
+            VoteScreen.forceClose(msg.voteId(), msg.counts());
             unfreeze();
             var mc = MinecraftClient.getInstance();
             SystemToast.add(
@@ -280,50 +628,138 @@ public final class SecurityClientMod implements ClientModInitializer {
                 Text.literal(reason == null ? "" : reason)
             );
         } catch (Exception e) {
-            logClient("Failed to handle VoteEnd: " + e.getMessage());
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to handle VoteEnd: " + e.getMessage());
         }
     }
 
-    // -------------------------------------------------------------------------
-    // Utility methods
-    // -------------------------------------------------------------------------
+    /**
+     * Handles VoteBackground: serves the image from the local cache, or
+     * starts a chunked transfer from the server on a miss.
+     */
+    private static void handleVoteBackground(VoteBackground msg) {
+        try {
+            BackgroundCache cache = backgroundCache();
+            VoteScreen.announceBackground(msg.voteId(), msg.hash(), receivedNanos);
+            if (BackgroundTextures.cached(msg.hash()) != null || (cache != null && cache.contains(msg.hash()))) {
+                // read and decoded on the decoder thread, or already uploaded
+                VoteScreen.setBackground(msg.voteId(), msg.hash(), () -> cache != null ? cache.get(msg.hash()) : null);
+                return;
+            }
+            if (downloads.containsKey(msg.hash())) return;
+            ChunkedDownload download = new ChunkedDownload(msg.voteId(), msg.hash(), msg.size());
+            downloads.put(msg.hash(), download);
+            for (RequestImageChunk req : download.start(System.nanoTime())) {
+                send(req);
+            }
+        } catch (Exception e) {
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to handle VoteBackground: " + e.getMessage());
+        }
+    }
 
     /**
-     * Safely read a UTF string from the input.  Returns null on failure.
+     * Handles ImageChunk: stores the bytes, spends the freed credit on the
+     * next range and, once complete, verifies and caches the background on
+     * the store thread before showing it.
      */
-    private static String safeReadUTF(ByteArrayDataInput in) {
+    private static void handleImageChunk(ImageChunk msg) {
         try {
-            return in.readUTF();
+            ChunkedDownload download = downloads.get(msg.hash());
+            if (download == null) return;
+            RequestImageChunk next = download.accept(msg, System.nanoTime());
+            if (next != null) send(next);
+            if (!download.isComplete()) return;
+            downloads.remove(msg.hash());
+            BackgroundCache cache = backgroundCache();
+            MinecraftClient mc = MinecraftClient.getInstance();
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    // SHA-256 and a write of up to 8 MiB
+                    return cache != null
+                        ? cache.put(download.hash(), download.data())
+                        : download.hash().matches(download.data());
+                } catch (IOException e) {
+                    // not cached, but still shown if it matches
+                    return download.hash().matches(download.data());
+                }
+            }, BACKGROUND_STORE).whenComplete((valid, err) -> mc.execute(() -> {
+                if (err != null || !valid) {
+                    ClientLog.warn(ClientLog.Category.VOTE, "Background " + download.hash() + " failed hash check");
+                    return;
+                }
+                byte[] data = download.data();
+                VoteScreen.setBackground(download.voteId(), download.hash(), () -> data);
+            }));
         } catch (Exception e) {
-            return null;
+            ClientLog.warn(ClientLog.Category.VOTE, "Failed to handle ImageChunk: " + e.getMessage());
         }
     }
 
     /**
-     * Freeze/unfreeze player movement.  Called when vote UIs are opened/closed.
+     * Requests chunks again that the server left unanswered, and drops
+     * downloads that keep timing out; the vote keeps its plain background.
      */
-    public static void freezeMovement() { freezeMovement = true; }
-    public static void unfreeze()      { freezeMovement = false; }
+    private static void retryDownloads() {
+        if (downloads.isEmpty()) return;
+        long now = System.nanoTime();
+        Iterator<ChunkedDownload> it = downloads.values().iterator();
+        while (it.hasNext()) {
+            ChunkedDownload download = it.next();
+            for (RequestImageChunk req : download.expired(now)) {
+                send(req);
+            }
+            if (download.isFailed()) {
+                it.remove();
+                ClientLog.warn(ClientLog.Category.VOTE, "Background " + download.hash() + " download timed out");
+            }
+        }
+    }
 
     /**
-     * Simple logger that prints to console and optionally shows a toast for
-     * easier debugging during development.  Toasts are abbreviated to 60
-     * characters.
+     * Fetches backgrounds that StartVote gives as a URL into the same disk
+     * cache.  Client thread only.
+     *
+     * @return the fetcher, or {@code null} if the cache is unavailable
      */
-    private static void logClient(String msg) {
-        System.out.println("[SecurityClient] " + msg);
-        try {
-            var mc = MinecraftClient.getInstance();
-            if (mc != null && mc.getToastManager() != null) {
-                SystemToast.add(
-                    mc.getToastManager(),
-                    SystemToast.Type.PERIODIC_NOTIFICATION,
-                    Text.literal("Security"),
-                    Text.literal(msg.length() > 60 ? msg.substring(0, 60) + "..." : msg)
-                );
+    static UrlBackgroundFetcher backgroundFetcher() {
+        backgroundCache();
+        return backgroundFetcher;
+    }
+
+    private static BackgroundCache backgroundCache() {
+        if (!backgroundCacheOpened) {
+            backgroundCacheOpened = true;
+            try {
+                Path dir = FabricLoader.getInstance().getGameDir().resolve("ssavs").resolve("backgrounds");
+                backgroundCache = new BackgroundCache(dir, BACKGROUND_CACHE_BYTES);
+                backgroundFetcher = new UrlBackgroundFetcher(backgroundCache, dir, VoteBackground.MAX_SIZE, BACKGROUND_URL_TIMEOUT);
+            } catch (Exception e) {
+                ClientLog.warn(ClientLog.Category.VOTE, "Background cache unavailable: " + e.getMessage());
             }
-        } catch (Throwable ignore) {
-            // If toast cannot be displayed, do nothing; console log is sufficient
         }
+        return backgroundCache;
     }
+
+    // -------------------------------------------------------------------------
+    // Utility methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Reports a message the payload codec could not decode.  Packets whose
+     * subchannel header is unreadable are dropped silently.
+     */
+    private static void handleDecodeError(ProtocolException e) {
+        if (e.subchannel() == null) return;
+        if (e instanceof UnknownSubchannelException) {
+            ClientLog.warn(ClientLog.Category.NETWORK, "Unknown subchannel: " + e.subchannel());
+        } else {
+            ClientLog.warn(ClientLog.Category.NETWORK, "Failed to handle " + e.subchannel() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Freeze/unfreeze player movement.  Called when vote UIs are opened/closed.
+     */
+    public static void freezeMovement() { freezeMovement = true; }
+    public static void unfreeze()      { freezeMovement = false; }
+    public static boolean isMovementFrozen() { return freezeMovement; }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.rehard.securityclient;
+
+import com.rehard.securityclient.capture.SessionRecording;
+import com.rehard.securityclient.net.RawPluginPayload;
+import net.minecraft.client.MinecraftClient;
+
+/**
+ * Plays the incoming payloads of a {@link SessionRecording} back into the
+ * client, as if the server had sent them again: decoded by
+ * {@link RawPluginPayload#decode} on the replay thread, then handled in a
+ * client-thread task.  While it runs, outgoing messages are dropped so the
+ * real server never sees answers to traffic it did not send.
+ */
+final class SessionReplay {
+    private static volatile SessionReplay active;
+
+    private final SessionRecording recording;
+    private final boolean realTime;
+    private final int previousVersion;
+    private final int previousCapabilities;
+    private volatile boolean stopped;
+
+    private SessionReplay(SessionRecording recording, boolean realTime) {
+        this.recording = recording;
+        this.realTime = realTime;
+        this.previousVersion = RawPluginPayload.protocolVersion();
+        this.previousCapabilities = RawPluginPayload.capabilities();
+    }
+
+    static SessionReplay active() {
+        return active;
+    }
+
+    /**
+     * Starts replaying {@code recording}.  Client thread only.
+     *
+     * @param realTime keep the recorded pace; otherwise as fast as possible
+     * @throws IllegalStateException if a replay or stand-in session is running
+     */
+    static void start(SessionRecording recording, boolean realTime) {
+        if (active != null) throw new IllegalStateException("Replay already running");
+        if (StandinSession.active() != null) throw new IllegalStateException("Stand-in server running");
+        SessionReplay replay = new SessionReplay(recording, realTime);
+        active = replay;
+        Thread t = new Thread(replay::run, "SSaVS replay");
+        t.setDaemon(true);
+        t.start();
+        ClientLog.info(ClientLog.Category.GENERAL, "Replaying " + recording.frames().size() + " recorded frames"
+            + (realTime ? "" : " as fast as possible"));
+    }
+
+    /** Stops the running replay, if any. */
+    static boolean stopActive() {
+        SessionReplay replay = active;
+        if (replay == null) return false;
+        replay.stopped = true;
+        return true;
+    }
+
+    private void run() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        int delivered = 0;
+        try {
+            delivered = recording.replay(frame -> {
+                RawPluginPayload payload = RawPluginPayload.decode(frame.buffer());
+                client.send(() -> SecurityClientMod.receive(payload));
+            }, realTime, () -> stopped);
+        } catch (Throwable e) {
+            ClientLog.warn(ClientLog.Category.GENERAL, "Replay failed: " + e);
+        }
+        int count = delivered;
+        // queued after the last frame, so it runs once they have been handled
+        client.send(() -> {
+            active = null;
+            RawPluginPayload.setProtocolVersion(previousVersion, previousCapabilities);
+            ClientLog.info(ClientLog.Category.GENERAL, "Replay finished: " + count + " frames delivered");
+        });
+    }
+}
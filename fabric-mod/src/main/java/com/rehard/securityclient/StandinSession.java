@@ -0,0 +1,131 @@
+package com.rehard.securityclient;
+
+import com.rehard.securityclient.image.UrlBackgroundFetcher;
+import com.rehard.securityclient.net.RawPluginPayload;
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.standin.Profile;
+import com.rehard.securityclient.standin.StandinImageServer;
+import com.rehard.securityclient.standin.StandinServer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link StandinServer} running inside the client in place of the Paper
+ * plugin.  While it runs, every outgoing message goes to it instead of the
+ * connection, and its messages take the same path as real ones: decoded
+ * by {@link RawPluginPayload#decode} on the stand-in thread, then handled
+ * in a client-thread task.  A profile with URL backgrounds also starts a
+ * loopback {@link StandinImageServer}, and the background fetcher accepts
+ * loopback URLs until the session ends.  When the profile finishes or the
+ * session is stopped, the report is written to
+ * {@code <gameDir>/ssavs/standin-*.json}.
+ */
+final class StandinSession {
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final long TICK_NANOS = 1_000_000L;
+
+    private static volatile StandinSession active;
+
+    private final StandinServer server;
+    private final StandinImageServer images;
+    private final int previousVersion;
+    private final int previousCapabilities;
+    private volatile boolean stopped;
+
+    private StandinSession(Profile profile) throws IOException {
+        this.images = profile.urlImages() ? new StandinImageServer() : null;
+        this.server = new StandinServer(profile, this::toClient, images);
+        this.previousVersion = RawPluginPayload.protocolVersion();
+        this.previousCapabilities = RawPluginPayload.capabilities();
+    }
+
+    static StandinSession active() {
+        return active;
+    }
+
+    /**
+     * Starts a session and the handshake with it.  Client thread only.
+     *
+     * @throws IllegalStateException if a session or a replay is already running
+     * @throws IOException if the image server cannot bind
+     */
+    static void start(Profile profile) throws IOException {
+        if (active != null) throw new IllegalStateException("Stand-in server already running");
+        if (SessionReplay.active() != null) throw new IllegalStateException("Replay running");
+        StandinSession session = new StandinSession(profile);
+        active = session;
+        allowLoopbackImages(session.images != null);
+        SecurityClientMod.restartHandshake();
+        Thread t = new Thread(session::run, "SSaVS stand-in");
+        t.setDaemon(true);
+        t.start();
+        ClientLog.info(ClientLog.Category.GENERAL, "Stand-in server started: " + profile);
+    }
+
+    /** Stops the running session, if any; its report is still written. */
+    static boolean stopActive() {
+        StandinSession session = active;
+        if (session == null) return false;
+        session.stopped = true;
+        return true;
+    }
+
+    /** Hands a client message to the stand-in instead of the connection. */
+    void toServer(Message message) {
+        ByteBuf buf = Unpooled.buffer();
+        RawPluginPayload.encode(buf, message);
+        server.fromClient(buf, System.nanoTime());
+    }
+
+    private void toClient(ByteBuf buf) {
+        RawPluginPayload payload = RawPluginPayload.decode(buf);
+        // always queue, like a packet, even when called on the client thread
+        MinecraftClient.getInstance().send(() -> SecurityClientMod.receive(payload));
+    }
+
+    private void run() {
+        try {
+            while (!stopped && !server.isDone()) {
+                server.tick(System.nanoTime());
+                LockSupport.parkNanos(TICK_NANOS);
+            }
+        } catch (Throwable e) {
+            ClientLog.warn(ClientLog.Category.GENERAL, "Stand-in server failed: " + e);
+        }
+        String report = server.reportJson();
+        if (images != null) images.close();
+        MinecraftClient.getInstance().send(() -> {
+            active = null;
+            allowLoopbackImages(false);
+            RawPluginPayload.setProtocolVersion(previousVersion, previousCapabilities);
+            try {
+                ClientLog.info(ClientLog.Category.GENERAL, "Stand-in report written to " + writeReport(report));
+            } catch (IOException e) {
+                ClientLog.warn(ClientLog.Category.GENERAL, "Failed to write stand-in report: " + e.getMessage());
+            }
+        });
+    }
+
+    private static void allowLoopbackImages(boolean allow) {
+        UrlBackgroundFetcher fetcher = SecurityClientMod.backgroundFetcher();
+        if (fetcher != null) fetcher.setAllowLoopback(allow);
+    }
+
+    private static Path writeReport(String report) throws IOException {
+        Path dir = FabricLoader.getInstance().getGameDir().resolve("ssavs");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("standin-" + LocalDateTime.now().format(STAMP) + ".json");
+        Files.writeString(file, report, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -3,17 +3,27 @@ package com.rehard.securityclient;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
-import net.minecraft.client.texture.NativeImage;
-import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.client.gui.widget.TextFieldWidget;
 import com.mojang.blaze3d.systems.RenderSystem;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.render.RenderLayer;
+import net.minecraft.text.OrderedText;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+
+import com.rehard.securityclient.image.UrlBackgroundFetcher;
+import com.rehard.securityclient.metrics.ClientMetrics;
+import com.rehard.securityclient.protocol.ContentHash;
+import com.rehard.securityclient.protocol.MessageType;
+import com.rehard.securityclient.protocol.VoteStats;
+import com.rehard.securityclient.protocol.VoteStatsDelta;
+import com.rehard.securityclient.render.BackgroundTextures;
+import com.rehard.securityclient.vote.VoteTally;
 
-import java.io.ByteArrayInputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Fullscreen GUI for displaying interactive votes. Shows the title,
@@ -21,6 +31,24 @@ import java.util.concurrent.ConcurrentHashMap;
  * selected option to the server and closes itself. Vote statistics are
  * updated live. When the vote ends (timeout or manual) the screen is
  * force-closed and final counts can be displayed briefly.
+ *
+ * Text layout (title, wrapped description, count labels) is computed in
+ * {@link #init()}, which also runs on resize; count labels are rebuilt
+ * only when the statistics change.  A frame therefore only issues draw
+ * calls, whatever the number of options.
+ *
+ * Options are shown as a virtualized list: only as many buttons as fit on
+ * screen are created, and scrolling rebinds them to other options.  When
+ * the list does not fit, a search field filters it by substring.  Opening
+ * and drawing the screen costs the same for 5 options and for 10,000.
+ *
+ * The background may be Base64 data, a public URL or an image announced
+ * by hash.  The screen opens at once with a plain dim fill; a background
+ * that is not already uploaded fades in when it is ready.
+ *
+ * While open, the screen subscribes to the vote's statistics at a rate
+ * that follows the frame rate, and pauses them when it closes before the
+ * vote ends, so the server does not push updates nobody sees.
  */
 public class VoteScreen extends Screen {
     private static final Map<String, VoteScreen> ACTIVE = new ConcurrentHashMap<>();
@@ -30,11 +58,59 @@ public class VoteScreen extends Screen {
     private final List<String> options;
     private final boolean freezeMovement;
     private final String imageData;
+    /** Background delivered by hash after the screen was created. */
+    private Supplier<byte[]> imageSource;
+    /** Hash of the background, once announced or computed by the decoder. */
+    private ContentHash imageHash;
+    private boolean bgLoading = false;
     private final int durationSec;
     private Identifier bgTex = null;
-    private NativeImageBackedTexture bgTextureObj = null;
+    /** Hash pinned in BackgroundTextures while bgTex is drawn. */
+    private ContentHash pinnedHash;
+    /** When a late background became ready, for the fade-in; 0 to draw it opaque. */
+    private long bgShownAt;
+    /** Arrival of the VoteBackground announcing bgAnnouncedHash, 0 once recorded or if none. */
+    private long bgAnnouncedNanos;
+    private ContentHash bgAnnouncedHash;
+    private static final long BG_FADE_MS = 400;
+    /** Recycled row buttons; row r shows option rowOption[r]. */
     private final List<ButtonWidget> buttons = new ArrayList<>();
-    private int[] counts;
+    private int[] rowOption = new int[0];
+    private final VoteTally tally;
+    private final int[] counts;
+
+    // Stats subscription: rate last sent, 0 if none; ended once VoteEnd closed us
+    private static final long SUBSCRIBE_CHECK_MS = 1000;
+    private int subscribedRate;
+    private long subscribeCheckedAt;
+    private boolean ended;
+
+    // Cached layout, rebuilt by init() on open and resize
+    private static final int TITLE_Y = 20;
+    private static final int DESC_Y = 40;
+    private static final int LINE_HEIGHT = 10;
+    private int titleX;
+    private List<OrderedText> descLines = List.of();
+    private int[] descX = new int[0];
+    /** Count labels, rebuilt when statsDirty is set.  Client thread only. */
+    private String[] countLabels = new String[0];
+    private boolean statsDirty = true;
+
+    // Option list state
+    private static final int BUTTON_WIDTH = 220;
+    private static final int BUTTON_HEIGHT = 20;
+    private static final int GAP = 6;
+    private static final int ROW_STEP = BUTTON_HEIGHT + GAP;
+    private int listTop;
+    /** First visible row of the (filtered) list. */
+    private int scroll;
+    private TextFieldWidget search;
+    private String query = "";
+    /** Indices of matching options, or null when no filter is applied. */
+    private int[] filtered;
+    private int filteredCount;
+    /** Lower-cased options, built on the first search. */
+    private String[] lowerOptions;
 
     public VoteScreen(String voteId, String title, String description, List<String> options,
                       boolean freezeMovement, String imageData, int durationSec) {
@@ -46,47 +122,245 @@ public class VoteScreen extends Screen {
         this.freezeMovement = freezeMovement;
         this.imageData = imageData;
         this.durationSec = durationSec;
+        this.tally = new VoteTally(voteId, options.size());
         this.counts = new int[options.size()];
         ACTIVE.put(voteId, this);
     }
 
     @Override
     protected void init() {
-        int y = this.height / 4;
-        int buttonWidth = 220;
-        int buttonHeight = 20;
-        int gap = 6;
-        for (int i = 0; i < options.size(); i++) {
-            final int idx = i;
-            ButtonWidget btn = ButtonWidget.builder(Text.literal(options.get(i)), b -> {
-                sendVoteResponse(idx);
+        layoutText();
+        int x = (this.width - BUTTON_WIDTH) / 2;
+        int top = Math.max(this.height / 4, DESC_Y + descLines.size() * LINE_HEIGHT + 10);
+        search = null;
+        if (options.size() > fittingRows(top)) {
+            search = new TextFieldWidget(this.textRenderer, x, top, BUTTON_WIDTH, BUTTON_HEIGHT, Text.literal("Поиск"));
+            search.setPlaceholder(Text.literal("Поиск…"));
+            search.setText(query);
+            search.setChangedListener(this::applyFilter);
+            addDrawableChild(search);
+            setInitialFocus(search);
+            top += ROW_STEP;
+        } else {
+            // после resize список снова помещается целиком
+            query = "";
+            filtered = null;
+        }
+        listTop = top;
+
+        int rows = Math.min(options.size(), fittingRows(top));
+        buttons.clear();
+        rowOption = new int[rows];
+        countLabels = new String[rows];
+        for (int r = 0; r < rows; r++) {
+            final int row = r;
+            ButtonWidget btn = ButtonWidget.builder(Text.empty(), b -> {
+                int option = rowOption[row];
+                if (option < 0) return;
+                sendVoteResponse(option);
                 close();
-            }).dimensions((this.width - buttonWidth) / 2, y + i * (buttonHeight + gap), buttonWidth, buttonHeight).build();
+            }).dimensions(x, top + r * ROW_STEP, BUTTON_WIDTH, BUTTON_HEIGHT).build();
             addDrawableChild(btn);
             buttons.add(btn);
         }
-        if (imageData != null && !imageData.isBlank()) {
-            try {
-                byte[] raw = java.util.Base64.getDecoder().decode(imageData);
-                NativeImage img = NativeImage.read(new ByteArrayInputStream(raw));
-                bgTextureObj = new NativeImageBackedTexture(img);
-                /**bgTex = MinecraftClient.getInstance().getTextureManager().registerDynamicTexture("vote_bg_" + voteId, bgTextureObj);**/
-                Identifier dynId = Identifier.of("securityclient", "vote_bg_" + voteId);
-                MinecraftClient.getInstance().getTextureManager().registerTexture(dynId, bgTextureObj);
-                bgTex = dynId;
-            } catch (Exception ex) {
-                bgTex = null;
+        scroll = clampScroll(scroll);
+        bindRows();
+        subscribe();
+        if (bgTex == null && !bgLoading) {
+            if (imageSource != null) {
+                loadBackground(imageSource);
+            } else if (UrlBackgroundFetcher.isUrl(imageData)) {
+                fetchBackground(imageData.strip());
+            } else if (imageData != null && !imageData.isBlank()) {
+                String data = imageData;
+                loadBackground(() -> java.util.Base64.getDecoder().decode(data));
+            }
+        }
+    }
+
+    /**
+     * Centres the title and wraps the description to the screen width.
+     */
+    private void layoutText() {
+        titleX = (this.width - this.textRenderer.getWidth(getTitle())) / 2;
+        int wrapWidth = Math.max(100, Math.min(this.width - 40, 360));
+        descLines = this.textRenderer.wrapLines(Text.literal(description), wrapWidth);
+        descX = new int[descLines.size()];
+        for (int i = 0; i < descLines.size(); i++) {
+            descX[i] = (this.width - this.textRenderer.getWidth(descLines.get(i))) / 2;
+        }
+    }
+
+    private int fittingRows(int top) {
+        return Math.max(1, (this.height - top - 10 + GAP) / ROW_STEP);
+    }
+
+    private int visibleCount() {
+        return filtered == null ? options.size() : filteredCount;
+    }
+
+    private int clampScroll(int value) {
+        return Math.max(0, Math.min(value, visibleCount() - buttons.size()));
+    }
+
+    /**
+     * Points the recycled buttons at the options starting from
+     * {@link #scroll}.  Runs on open, scroll and filter change only.
+     */
+    private void bindRows() {
+        int total = visibleCount();
+        for (int r = 0; r < buttons.size(); r++) {
+            ButtonWidget b = buttons.get(r);
+            int row = scroll + r;
+            if (row < total) {
+                int option = filtered == null ? row : filtered[row];
+                rowOption[r] = option;
+                b.setMessage(Text.literal(options.get(option)));
+                b.visible = true;
+                b.active = true;
+            } else {
+                rowOption[r] = -1;
+                b.visible = false;
+                b.active = false;
+            }
+        }
+        statsDirty = true;
+    }
+
+    /**
+     * Filters the options by case-insensitive substring.  Linear in the
+     * number of options, but only runs when the query changes.
+     */
+    private void applyFilter(String text) {
+        query = text;
+        String needle = text.strip().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            filtered = null;
+        } else {
+            if (lowerOptions == null) {
+                lowerOptions = new String[options.size()];
+                for (int i = 0; i < lowerOptions.length; i++) {
+                    lowerOptions[i] = options.get(i).toLowerCase(Locale.ROOT);
+                }
+                filtered = new int[options.size()];
+            } else if (filtered == null) {
+                filtered = new int[options.size()];
+            }
+            int n = 0;
+            for (int i = 0; i < lowerOptions.length; i++) {
+                if (lowerOptions[i].contains(needle)) filtered[n++] = i;
             }
+            filteredCount = n;
         }
+        scroll = 0;
+        bindRows();
+    }
+
+    @Override
+    public boolean mouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
+        int next = clampScroll(scroll - (int) Math.signum(verticalAmount));
+        if (next != scroll) {
+            scroll = next;
+            bindRows();
+            return true;
+        }
+        return super.mouseScrolled(mouseX, mouseY, horizontalAmount, verticalAmount);
+    }
+
+    @Override
+    public void tick() {
+        super.tick();
+        if (Util.getMeasuringTimeMs() - subscribeCheckedAt >= SUBSCRIBE_CHECK_MS) subscribe();
+    }
+
+    /**
+     * Asks the server for stats at the rate of the current FPS tier, if it
+     * differs from the last one sent.
+     */
+    private void subscribe() {
+        subscribeCheckedAt = Util.getMeasuringTimeMs();
+        int rate = statsRateFor(MinecraftClient.getInstance().getCurrentFps());
+        if (rate != subscribedRate && SecurityClientMod.sendStatsSubscription(voteId, true, rate)) {
+            subscribedRate = rate;
+        }
+    }
+
+    /**
+     * Stats updates per second worth receiving at {@code fps}: counts only
+     * change on screen once per frame, and the mailbox applies at most one
+     * snapshot per tick anyway.
+     */
+    static int statsRateFor(int fps) {
+        if (fps >= 60) return 20;
+        if (fps >= 30) return 10;
+        if (fps >= 15) return 5;
+        return 2;
+    }
+
+    /**
+     * Starts decoding the background off-thread.  Until it is uploaded the
+     * plain dim fill is drawn; a resize or reopen reuses the cached texture.
+     */
+    private void loadBackground(Supplier<byte[]> source) {
+        Identifier cached = BackgroundTextures.cached(imageHash);
+        if (cached != null) {
+            showBackground(imageHash, cached);
+            return;
+        }
+        var window = MinecraftClient.getInstance().getWindow();
+        bgLoading = true;
+        BackgroundTextures.load(source, imageHash, window.getFramebufferWidth(), window.getFramebufferHeight())
+            .whenComplete((loaded, err) -> {
+                bgLoading = false;
+                // a screen closed meanwhile must not pin the texture
+                if (loaded != null && ACTIVE.get(voteId) == this) {
+                    showBackground(loaded.hash(), loaded.texture());
+                    bgShownAt = Util.getMeasuringTimeMs();
+                }
+            });
+    }
+
+    private void showBackground(ContentHash hash, Identifier texture) {
+        if (pinnedHash != null) BackgroundTextures.unpin(pinnedHash);
+        BackgroundTextures.pin(hash);
+        pinnedHash = hash;
+        imageHash = hash;
+        bgTex = texture;
+    }
+
+    /**
+     * Downloads a URL background (or revalidates the disk-cached copy) on
+     * a virtual thread, then decodes it like any other background.
+     */
+    private void fetchBackground(String url) {
+        UrlBackgroundFetcher fetcher = SecurityClientMod.backgroundFetcher();
+        if (fetcher == null) return;
+        MinecraftClient mc = MinecraftClient.getInstance();
+        bgLoading = true;
+        fetcher.fetch(url).whenComplete((fetched, err) -> mc.execute(() -> {
+            bgLoading = false;
+            if (err != null) {
+                ClientLog.warn(ClientLog.Category.VOTE, "Background " + url + " unavailable: " + err.getMessage());
+                return;
+            }
+            // closed meanwhile, or a background by hash won the race
+            if (ACTIVE.get(voteId) != this || bgTex != null) return;
+            imageHash = fetched.hash();
+            byte[] data = fetched.data();
+            loadBackground(() -> data);
+        }));
     }
 
     @Override
     public void removed() {
         ACTIVE.remove(voteId);
+        // closed by voting or Escape while the vote goes on
+        if (!ended && subscribedRate != 0) SecurityClientMod.sendStatsSubscription(voteId, false, subscribedRate);
         SecurityClientMod.unfreeze();
-        if (bgTextureObj != null) {
-            bgTextureObj.close();
-            bgTextureObj = null;
+        // the background texture stays in BackgroundTextures for reuse
+        if (pinnedHash != null) {
+            BackgroundTextures.unpin(pinnedHash);
+            pinnedHash = null;
         }
     }
 
@@ -107,8 +381,11 @@ public class VoteScreen extends Screen {
     @Override
     public void renderBackground(DrawContext context, int mouseX, int mouseY, float delta) {
         if (bgTex != null) {
+            // поздно загруженный фон проявляется, затемнение ослабевает с 0xAA до 0x66
+            float fade = bgShownAt == 0 ? 1f : Math.min(1f, (Util.getMeasuringTimeMs() - bgShownAt) / (float) BG_FADE_MS);
+            if (fade >= 1f) bgShownAt = 0;
             RenderSystem.enableBlend();
-            // базовый GUI пайплайн, параметры: id, x, y, u, v, width, height, texW, texH
+            // базовый GUI пайплайн, параметры: id, x, y, u, v, width, height, texW, texH, color
             context.drawTexture(
                 RenderLayer::getGuiTextured,
                 bgTex,
@@ -116,9 +393,9 @@ public class VoteScreen extends Screen {
                 0.0F, 0.0F,     // u, v
                 this.width, this.height,
                 this.width, this.height,
-                (int)0          // z; в некоторых маппингах это может быть int/float — подберите по сигнатуре IDE
+                ((int) (fade * 255) << 24) | 0xFFFFFF
             );
-            context.fill(0, 0, this.width, this.height, 0x66000000);
+            context.fill(0, 0, this.width, this.height, (0xAA - (int) ((0xAA - 0x66) * fade)) << 24);
             RenderSystem.disableBlend();
         } else {
             context.fill(0, 0, this.width, this.height, 0xAA000000);
@@ -127,25 +404,49 @@ public class VoteScreen extends Screen {
 
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        ClientMetrics metrics = ClientMetrics.INSTANCE;
+        metrics.recordFrame();
+        metrics.markVisible(MessageType.START_VOTE);
+        metrics.markVisible(MessageType.VOTE_STATS);
+        metrics.markVisible(MessageType.VOTE_STATS_DELTA);
+        if (bgTex != null && bgAnnouncedNanos != 0) {
+            // only the announced image counts; a failed download records nothing
+            if (bgAnnouncedHash.equals(imageHash)) metrics.recordEffect(MessageType.VOTE_BACKGROUND, bgAnnouncedNanos);
+            bgAnnouncedNanos = 0;
+        }
         this.renderBackground(context, mouseX, mouseY, delta);
 
-        // центрирование текста вручную
-        net.minecraft.text.Text title = net.minecraft.text.Text.literal(titleText);
-        int tw = this.textRenderer.getWidth(title);
-        context.drawText(this.textRenderer, title, (this.width - tw) / 2, 20, 0xFFFFFFFF, false);
-
-        net.minecraft.text.Text desc = net.minecraft.text.Text.literal(description);
-        int dw = this.textRenderer.getWidth(desc);
-        context.drawText(this.textRenderer, desc, (this.width - dw) / 2, 40, 0xFFDDDDDD, false);
+        // текст размечен заранее в init(); здесь только отрисовка
+        context.drawText(this.textRenderer, getTitle(), titleX, TITLE_Y, 0xFFFFFFFF, false);
+        for (int i = 0; i < descLines.size(); i++) {
+            context.drawText(this.textRenderer, descLines.get(i), descX[i], DESC_Y + i * LINE_HEIGHT, 0xFFDDDDDD, false);
+        }
 
         super.render(context, mouseX, mouseY, delta);
-        
-        for (int i = 0; i < buttons.size() && counts != null && i < counts.length; i++) {
-            ButtonWidget b = buttons.get(i);
-            String s = String.valueOf(counts[i]);
+
+        if (statsDirty) {
+            for (int r = 0; r < rowOption.length; r++) {
+                countLabels[r] = rowOption[r] < 0 ? null : Integer.toString(counts[rowOption[r]]);
+            }
+            statsDirty = false;
+        }
+        for (int r = 0; r < buttons.size(); r++) {
+            if (countLabels[r] == null) continue;
+            ButtonWidget b = buttons.get(r);
             int x = b.getX() + b.getWidth() + 6;
-            int y = b.getY() + (b.getHeight() - 9) / 2;
-            context.drawTexture(RenderLayer::getGuiTextured, bgTex, 0, 0, 0f, 0f, this.width, this.height, this.width, this.height);
+            int y = b.getY() + (b.getHeight() - 8) / 2;
+            context.drawText(this.textRenderer, countLabels[r], x, y, 0xFFFFFFFF, true);
+        }
+
+        // полоса прокрутки, если список не помещается
+        int total = visibleCount();
+        if (total > buttons.size() && !buttons.isEmpty()) {
+            int trackX = (this.width + BUTTON_WIDTH) / 2 + 40;
+            int trackH = buttons.size() * ROW_STEP - GAP;
+            int thumbH = Math.max(8, trackH * buttons.size() / total);
+            int thumbY = listTop + (int) ((long) (trackH - thumbH) * scroll / (total - buttons.size()));
+            context.fill(trackX, listTop, trackX + 3, listTop + trackH, 0x44FFFFFF);
+            context.fill(trackX, thumbY, trackX + 3, thumbY + thumbH, 0xCCFFFFFF);
         }
     }
 
@@ -157,12 +458,60 @@ public class VoteScreen extends Screen {
     /**
      * Updates vote statistics for the active screen. Called by the client mod
      * when VoteStats packets arrive from the server.
+     *
+     * @return whether the counters changed
      */
-    public static void updateStats(String voteId, int[] counts) {
+    public static boolean updateStats(String voteId, int seq, int[] counts) {
         VoteScreen screen = ACTIVE.get(voteId);
-        if (screen != null && counts.length == screen.counts.length) {
-            screen.counts = Arrays.copyOf(counts, counts.length);
+        if (screen != null && screen.tally.applySnapshot(seq, counts) == VoteTally.Result.APPLIED) {
+            screen.tally.copyTo(screen.counts);
+            screen.statsDirty = true;
+            ClientMetrics.INSTANCE.recordStatsApplied();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Patches the counters of the active screen in place.  A
+     * {@link VoteTally.Result#RESYNC} result means the delta revealed a
+     * sequence gap and a full snapshot should be requested from the server.
+     */
+    public static VoteTally.Result applyStatsDelta(VoteStatsDelta delta) {
+        VoteScreen screen = ACTIVE.get(delta.voteId());
+        if (screen == null) return VoteTally.Result.IGNORED;
+        VoteTally.Result result = screen.tally.applyDelta(delta);
+        if (result == VoteTally.Result.APPLIED) {
+            screen.tally.copyTo(screen.counts);
+            screen.statsDirty = true;
+            ClientMetrics.INSTANCE.recordStatsApplied();
         }
+        return result;
+    }
+
+    /**
+     * Notes when the VoteBackground for a vote arrived, so the screen can
+     * record its effect latency once that image is drawn.
+     */
+    public static void announceBackground(String voteId, ContentHash hash, long receivedNanos) {
+        VoteScreen screen = ACTIVE.get(voteId);
+        if (screen == null || screen.bgTex != null) return;
+        screen.bgAnnouncedHash = hash;
+        screen.bgAnnouncedNanos = receivedNanos == 0 ? 1 : receivedNanos;
+    }
+
+    /**
+     * Sets the background of the active screen from an image announced by
+     * hash.  {@code source} is read on the decoder thread, so it may hit
+     * the disk cache.
+     */
+    public static void setBackground(String voteId, ContentHash hash, Supplier<byte[]> source) {
+        VoteScreen screen = ACTIVE.get(voteId);
+        if (screen == null || screen.bgTex != null) return;
+        screen.imageHash = hash;
+        screen.imageSource = source;
+        // before init() the source is picked up there
+        if (screen.client != null && !screen.bgLoading) screen.loadBackground(source);
     }
 
     /**
@@ -172,8 +521,10 @@ public class VoteScreen extends Screen {
     public static void forceClose(String voteId, int[] counts) {
         VoteScreen screen = ACTIVE.get(voteId);
         if (screen != null) {
-            if (counts != null && counts.length == screen.counts.length) {
-                screen.counts = Arrays.copyOf(counts, counts.length);
+            screen.ended = true;
+            if (counts != null && screen.tally.applySnapshot(VoteStats.NO_SEQ, counts) == VoteTally.Result.APPLIED) {
+                screen.tally.copyTo(screen.counts);
+                screen.statsDirty = true;
             }
             screen.close();
         }
@@ -0,0 +1,49 @@
+package com.rehard.securityclient.mixin;
+
+import com.rehard.securityclient.SecurityClientMod;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+/**
+ * Skips movement packets that would repeat the last sent state while a
+ * vote freezes movement.  Vanilla resends the position every 20 ticks even
+ * when standing still; a frozen player on the ground sends nothing.
+ * Falling, knockback or rotation still go out as usual, and so does
+ * everything else sendMovementPackets sends, such as the sprint command.
+ */
+@Mixin(ClientPlayerEntity.class)
+public abstract class ClientPlayerEntityMixin {
+    /** Vanilla's threshold for "moved" in sendMovementPackets. */
+    private static final double MOVE_EPSILON_SQ = 2.0E-4 * 2.0E-4;
+
+    @Shadow private double lastX;
+    @Shadow private double lastBaseY;
+    @Shadow private double lastZ;
+    @Shadow private float lastYaw;
+    @Shadow private float lastPitch;
+    @Shadow private boolean lastOnGround;
+
+    /** Vanilla updates the last* fields after this send, so they still hold the previous state. */
+    @Redirect(method = "sendMovementPackets", at = @At(value = "INVOKE",
+        target = "Lnet/minecraft/client/network/ClientPlayNetworkHandler;sendPacket(Lnet/minecraft/network/packet/Packet;)V"))
+    private void ssavs$skipWhileFrozen(ClientPlayNetworkHandler handler, Packet<?> packet) {
+        if (!(packet instanceof PlayerMoveC2SPacket) || !repeatsLastState()) handler.sendPacket(packet);
+    }
+
+    private boolean repeatsLastState() {
+        if (!SecurityClientMod.isMovementFrozen()) return false;
+        ClientPlayerEntity self = (ClientPlayerEntity) (Object) this;
+        if (self.hasVehicle() || !self.isOnGround() || !lastOnGround) return false;
+        double dx = self.getX() - lastX;
+        double dy = self.getY() - lastBaseY;
+        double dz = self.getZ() - lastZ;
+        if (dx * dx + dy * dy + dz * dz > MOVE_EPSILON_SQ) return false;
+        return self.getYaw() == lastYaw && self.getPitch() == lastPitch;
+    }
+}
@@ -0,0 +1,26 @@
+package com.rehard.securityclient.mixin;
+
+import com.rehard.securityclient.SecurityClientMod;
+import net.minecraft.client.input.Input;
+import net.minecraft.client.input.KeyboardInput;
+import net.minecraft.util.PlayerInput;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Drops the player's movement input while a vote freezes movement, so the
+ * client never starts moving instead of being pulled back every tick.
+ */
+@Mixin(KeyboardInput.class)
+public abstract class KeyboardInputMixin extends Input {
+
+    @Inject(method = "tick", at = @At("TAIL"))
+    private void ssavs$freeze(CallbackInfo ci) {
+        if (!SecurityClientMod.isMovementFrozen()) return;
+        this.playerInput = PlayerInput.DEFAULT;
+        this.movementForward = 0.0F;
+        this.movementSideways = 0.0F;
+    }
+}
@@ -1,35 +1,124 @@
 package com.rehard.securityclient.net;
 
+import com.rehard.securityclient.capture.SessionRecorder;
+import com.rehard.securityclient.metrics.ClientMetrics;
+import com.rehard.securityclient.protocol.Message;
+import com.rehard.securityclient.protocol.MessageCodec;
+import com.rehard.securityclient.protocol.ProtocolException;
+import com.rehard.securityclient.protocol.StartVote;
+import com.rehard.securityclient.vote.StatsMailbox;
+import io.netty.buffer.ByteBuf;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.network.packet.CustomPayload;
 import net.minecraft.util.Identifier;
 
 /**
- * Сырой payload для обмена по каналу ssavs:security.
+ * Payload канала ssavs:security.  Сообщение декодируется прямо из буфера
+ * Netty в типизированную запись, без промежуточного byte[].
+ * VoteStats и VoteEnd сразу кладутся в {@link StatsMailbox} на сетевом
+ * потоке и до клиентского потока доходят пустым payload.
+ *
+ * @param message       декодированное сообщение, либо {@code null} если разбор не удался
+ *                      или сообщение уже передано в {@link StatsMailbox}
+ * @param error         причина ошибки разбора, либо {@code null}
+ * @param receivedNanos {@link System#nanoTime()} начала разбора входящего пакета, 0 для исходящих
  */
-public record RawPluginPayload(byte[] data) implements CustomPayload {
+public record RawPluginPayload(Message message, ProtocolException error, long receivedNanos) implements CustomPayload {
     public static final Id<RawPluginPayload> ID =
             new Id<>(Identifier.of("ssavs", "security"));
 
-    // Правильно реализованный кодек
+    /** Согласованная с сервером версия протокола; 1 — строковые подканалы. */
+    private static volatile int protocolVersion = 1;
+    /** Согласованные возможности ({@link MessageCodec#CAP_DEFLATE}); 0 до рукопожатия. */
+    private static volatile int capabilities = 0;
+    /** Запись трафика соединения, либо {@code null} если выключена. */
+    private static volatile SessionRecorder recorder;
+
     public static final PacketCodec<RegistryByteBuf, RawPluginPayload> CODEC =
             new PacketCodec<>() {
                 @Override
                 public RawPluginPayload decode(RegistryByteBuf buf) {
-                    int remaining = buf.readableBytes();
-                    byte[] bytes = new byte[remaining];
-                    buf.readBytes(bytes);
-                    return new RawPluginPayload(bytes);
+                    SessionRecorder r = recorder;
+                    if (r != null) r.record(SessionRecorder.IN, buf, buf.readerIndex(), buf.readableBytes());
+                    return RawPluginPayload.decode(buf);
                 }
 
                 // encode принимает сначала буфер, потом значение
                 @Override
                 public void encode(RegistryByteBuf buf, RawPluginPayload value) {
-                    buf.writeBytes(value.data());
+                    int start = buf.writerIndex();
+                    RawPluginPayload.encode(buf, value.message());
+                    SessionRecorder r = recorder;
+                    if (r != null) r.record(SessionRecorder.OUT, buf, start, buf.writerIndex() - start);
                 }
             };
 
+    public RawPluginPayload(Message message) {
+        this(message, null, 0);
+    }
+
+    /**
+     * Разбирает входящее сообщение целиком.  Вызывается кодеком на сетевом
+     * потоке и stand-in сервером в обход сети.
+     */
+    public static RawPluginPayload decode(ByteBuf buf) {
+        long start = System.nanoTime();
+        int size = buf.readableBytes();
+        try {
+            Message message = MessageCodec.decode(buf);
+            ClientMetrics.INSTANCE.recordIn(message.type(), size, System.nanoTime() - start);
+            if (StatsMailbox.coalesces(message)) {
+                if (StatsMailbox.INSTANCE.publish(message, start)) ClientMetrics.INSTANCE.recordStatsCoalesced();
+                return new RawPluginPayload(null, null, start);
+            }
+            // в порядке пакетов: статистика после StartVote с прежним id снова принимается
+            if (message instanceof StartVote startVote) StatsMailbox.INSTANCE.reopen(startVote.voteId());
+            return new RawPluginPayload(message, null, start);
+        } catch (ProtocolException e) {
+            ClientMetrics.INSTANCE.recordDecodeError();
+            return new RawPluginPayload(null, e, start);
+        } finally {
+            // старый клиент игнорировал хвост пакета; не даём ему сломать соединение
+            buf.skipBytes(buf.readableBytes());
+        }
+    }
+
+    /** Кодирует исходящее сообщение в формате согласованной версии протокола. */
+    public static void encode(ByteBuf buf, Message message) {
+        int start = buf.writerIndex();
+        MessageCodec.encode(buf, message, protocolVersion >= MessageCodec.OPCODE_VERSION,
+            (capabilities & MessageCodec.CAP_DEFLATE) != 0);
+        ClientMetrics.INSTANCE.recordOut(message.type(), buf.writerIndex() - start);
+    }
+
+    /**
+     * Устанавливает версию протокола и возможности после рукопожатия
+     * ClientHello/ServerHello; определяет формат заголовка и сжатие исходящих
+     * сообщений.  Входящие принимаются в любом формате, сжатые — тоже.
+     */
+    public static void setProtocolVersion(int version, int negotiatedCapabilities) {
+        protocolVersion = version;
+        capabilities = negotiatedCapabilities;
+    }
+
+    public static int protocolVersion() {
+        return protocolVersion;
+    }
+
+    public static int capabilities() {
+        return capabilities;
+    }
+
+    /**
+     * Включает запись всех пакетов соединения, входящих и исходящих, в
+     * {@code recorder}; {@code null} выключает.  Stand-in сервер и повтор
+     * записи идут в обход кодека и не записываются.
+     */
+    public static void setRecorder(SessionRecorder sessionRecorder) {
+        recorder = sessionRecorder;
+    }
+
     @Override
     public Id<? extends CustomPayload> getId() {
         return ID;
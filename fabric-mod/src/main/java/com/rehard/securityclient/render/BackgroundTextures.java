@@ -0,0 +1,179 @@
+package com.rehard.securityclient.render;
+
+import com.rehard.securityclient.metrics.ClientMetrics;
+import com.rehard.securityclient.protocol.ContentHash;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.texture.NativeImageBackedTexture;
+import net.minecraft.util.Identifier;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Decodes vote backgrounds off the render thread and keeps the uploaded
+ * textures in a small LRU cache keyed by image hash, so reopening a vote
+ * or resizing the window reuses the existing texture.
+ *
+ * <p>Reading, Base64/PNG decoding and downscaling run on a dedicated
+ * daemon thread; only the GPU upload is scheduled on the client thread,
+ * which is also where the returned futures complete.  All other methods
+ * must be called on the client thread.
+ *
+ * <p>Open screens {@linkplain #pin pin} the texture they draw; eviction
+ * skips pinned textures, so the cache may briefly hold more than
+ * {@link #CAPACITY} while several votes are shown.
+ */
+public final class BackgroundTextures {
+    /** Number of uploaded backgrounds kept alive. */
+    private static final int CAPACITY = 4;
+
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SSaVS background decoder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final LinkedHashMap<ContentHash, Identifier> TEXTURES = new LinkedHashMap<>(8, 0.75f, true);
+    private static final Map<ContentHash, CompletableFuture<Loaded>> PENDING = new HashMap<>();
+    private static final Map<ContentHash, Integer> PINS = new HashMap<>();
+    /** Keys of {@link #TEXTURES}, readable from the decoder thread. */
+    private static final Set<ContentHash> UPLOADED = ConcurrentHashMap.newKeySet();
+
+    /** A background that is uploaded and ready to draw. */
+    public record Loaded(ContentHash hash, Identifier texture) {}
+
+    private BackgroundTextures() {}
+
+    /** @return the uploaded texture for {@code hash}, or {@code null} */
+    public static Identifier cached(ContentHash hash) {
+        return hash == null ? null : TEXTURES.get(hash);
+    }
+
+    /** Keeps the texture for {@code hash} from being evicted until {@link #unpin}. */
+    public static void pin(ContentHash hash) {
+        PINS.merge(hash, 1, Integer::sum);
+    }
+
+    public static void unpin(ContentHash hash) {
+        if (PINS.computeIfPresent(hash, (h, n) -> n > 1 ? n - 1 : null) == null) evict();
+    }
+
+    /**
+     * Loads a background in the background.  Without {@code knownHash} the
+     * bytes are hashed first, and an image that is already uploaded is not
+     * decoded again.
+     *
+     * @param source    supplies the encoded image; invoked on the decoder thread
+     * @param knownHash hash of the image if already known, otherwise it is
+     *                  computed from the supplied bytes
+     * @param maxWidth  the image is downscaled to fit this size in pixels
+     */
+    public static CompletableFuture<Loaded> load(Supplier<byte[]> source, ContentHash knownHash,
+                                                 int maxWidth, int maxHeight) {
+        Identifier cached = cached(knownHash);
+        if (cached != null) return CompletableFuture.completedFuture(new Loaded(knownHash, cached));
+        if (knownHash != null && PENDING.containsKey(knownHash)) return PENDING.get(knownHash);
+
+        CompletableFuture<Loaded> result = new CompletableFuture<>();
+        if (knownHash != null) PENDING.put(knownHash, result);
+        MinecraftClient mc = MinecraftClient.getInstance();
+        CompletableFuture.runAsync(() -> {
+            NativeImage image = null;
+            try {
+                byte[] raw = source.get();
+                if (raw == null) throw new IllegalStateException("Background unavailable");
+                ContentHash hash = knownHash != null ? knownHash : ContentHash.of(raw);
+                if (knownHash == null && UPLOADED.contains(hash)) {
+                    mc.execute(() -> reuse(hash, raw, maxWidth, maxHeight, result));
+                    return;
+                }
+                long start = System.nanoTime();
+                image = downscale(NativeImage.read(new ByteArrayInputStream(raw)), maxWidth, maxHeight);
+                ClientMetrics.INSTANCE.recordImageDecode(System.nanoTime() - start);
+                NativeImage decoded = image;
+                image = null;
+                mc.execute(() -> upload(hash, decoded, knownHash, result));
+            } catch (Throwable t) {
+                if (image != null) image.close();
+                mc.execute(() -> {
+                    if (knownHash != null) PENDING.remove(knownHash);
+                    result.completeExceptionally(t);
+                });
+            }
+        }, DECODER);
+        return result;
+    }
+
+    /** Completes with the uploaded texture, or decodes after all if it was evicted meanwhile. */
+    private static void reuse(ContentHash hash, byte[] raw, int maxWidth, int maxHeight,
+                              CompletableFuture<Loaded> result) {
+        Identifier id = TEXTURES.get(hash);
+        if (id != null) {
+            result.complete(new Loaded(hash, id));
+            return;
+        }
+        load(() -> raw, hash, maxWidth, maxHeight).whenComplete((loaded, err) -> {
+            if (err != null) result.completeExceptionally(err);
+            else result.complete(loaded);
+        });
+    }
+
+    private static void upload(ContentHash hash, NativeImage image, ContentHash pendingKey,
+                               CompletableFuture<Loaded> result) {
+        if (pendingKey != null) PENDING.remove(pendingKey);
+        Identifier id = TEXTURES.get(hash);
+        if (id != null) {
+            // the same image finished decoding under another request
+            image.close();
+        } else {
+            id = Identifier.of("securityclient", "vote_bg/" + hash.hex());
+            MinecraftClient.getInstance().getTextureManager().registerTexture(id, new NativeImageBackedTexture(image));
+            TEXTURES.put(hash, id);
+            UPLOADED.add(hash);
+            evict();
+        }
+        result.complete(new Loaded(hash, id));
+    }
+
+    private static void evict() {
+        Iterator<Map.Entry<ContentHash, Identifier>> it = TEXTURES.entrySet().iterator();
+        while (TEXTURES.size() > CAPACITY && it.hasNext()) {
+            Map.Entry<ContentHash, Identifier> eldest = it.next();
+            if (PINS.containsKey(eldest.getKey())) continue;
+            it.remove();
+            UPLOADED.remove(eldest.getKey());
+            MinecraftClient.getInstance().getTextureManager().destroyTexture(eldest.getValue());
+        }
+    }
+
+    /**
+     * Shrinks {@code src} to fit within the given size; the background is
+     * stretched over the screen anyway, so source pixels beyond the
+     * framebuffer resolution are never visible.
+     */
+    private static NativeImage downscale(NativeImage src, int maxWidth, int maxHeight) {
+        int w = Math.min(src.getWidth(), Math.max(1, maxWidth));
+        int h = Math.min(src.getHeight(), Math.max(1, maxHeight));
+        if (w == src.getWidth() && h == src.getHeight()) return src;
+        NativeImage dst = new NativeImage(w, h, false);
+        try {
+            src.resizeSubRectTo(0, 0, src.getWidth(), src.getHeight(), dst);
+        } catch (Throwable t) {
+            dst.close();
+            throw t;
+        } finally {
+            src.close();
+        }
+        return dst;
+    }
+}
@@ -0,0 +1,101 @@
+package com.rehard.securityclient.render;
+
+import com.rehard.securityclient.metrics.ClientMetrics;
+import com.rehard.securityclient.metrics.Histogram;
+import com.rehard.securityclient.protocol.MessageType;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * F3-style overlay listing {@link ClientMetrics}.  The text is rebuilt at
+ * most twice a second, so an open overlay costs a few draw calls per frame
+ * and nothing when it is hidden.
+ */
+public final class MetricsHud {
+    private static final long REFRESH_MS = 500;
+
+    private static volatile boolean visible = false;
+    private static List<String> lines = List.of();
+    private static long builtAt;
+
+    private MetricsHud() {}
+
+    public static void register(boolean initiallyVisible) {
+        visible = initiallyVisible;
+        HudRenderCallback.EVENT.register((context, tickCounter) -> render(context));
+    }
+
+    public static boolean toggle() {
+        visible = !visible;
+        return visible;
+    }
+
+    private static void render(DrawContext context) {
+        if (!visible) return;
+        MinecraftClient mc = MinecraftClient.getInstance();
+        if (mc.getDebugHud().shouldShowDebugHud()) return;
+        long now = System.currentTimeMillis();
+        if (now - builtAt >= REFRESH_MS) {
+            lines = build(ClientMetrics.INSTANCE);
+            builtAt = now;
+        }
+        TextRenderer tr = mc.textRenderer;
+        int y = 2;
+        for (String line : lines) {
+            int w = tr.getWidth(line);
+            int x = context.getScaledWindowWidth() - w - 2;
+            context.fill(x - 1, y - 1, x + w + 1, y + 9, 0x90505050);
+            context.drawText(tr, line, x, y, 0xFFE0E0E0, false);
+            y += 10;
+        }
+    }
+
+    private static List<String> build(ClientMetrics m) {
+        List<String> out = new ArrayList<>();
+        out.add("SSaVS  frames " + m.framesRendered() + "  stats applied " + m.statsApplied()
+            + " (coalesced " + m.statsCoalesced() + ")"
+            + "  decode errors " + m.decodeErrors());
+        Histogram img = m.imageDecodeNanos();
+        if (img.count() > 0) {
+            out.add("image decode  n=" + img.count() + "  p50 " + ms(img.percentile(0.5)) + "  max " + ms(img.max()));
+        }
+        Histogram rtt = m.pingRttNanos();
+        if (rtt.count() > 0) {
+            Histogram server = m.pingServerNanos();
+            out.add("ping  n=" + rtt.count() + "  rtt p50 " + ms(rtt.percentile(0.5)) + " p99 " + ms(rtt.percentile(0.99))
+                + "  server p50 " + ms(server.percentile(0.5)) + " p99 " + ms(server.percentile(0.99)));
+        }
+        for (MessageType type : MessageType.values()) {
+            long in = m.messagesIn(type);
+            long outCount = m.messagesOut(type);
+            if (in == 0 && outCount == 0) continue;
+            StringBuilder sb = new StringBuilder(type.wireName());
+            if (in > 0) {
+                sb.append("  in ").append(in).append(" / ").append(kb(m.bytesIn(type)))
+                  .append("  dec p99 ").append(us(m.decodeNanos(type).percentile(0.99)));
+                Histogram eff = m.effectNanos(type);
+                if (eff.count() > 0) sb.append("  eff p99 ").append(ms(eff.percentile(0.99)));
+            }
+            if (outCount > 0) sb.append("  out ").append(outCount).append(" / ").append(kb(m.bytesOut(type)));
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    private static String us(long nanos) {
+        return (nanos / 1_000) + "µs";
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    private static String kb(long bytes) {
+        return bytes < 1024 ? bytes + "B" : String.format("%.1fKB", bytes / 1024.0);
+    }
+}